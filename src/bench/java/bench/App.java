@@ -0,0 +1,274 @@
+package bench;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * {@summary Zugang der Benchmarks zu den Klassen der Anwendung.}
+ * Die Anwendung liegt im Default-Package, aus dem ein benanntes Paket nicht importieren kann;
+ * JMH verlangt für Benchmarks aber ein Paket. Die Aufrufe laufen deshalb über
+ * {@code static final} {@link MethodHandle}s, die der JIT wie direkte Aufrufe inlinet.
+ */
+final class App {
+
+    private static final MethodHandle INIT, SHUTDOWN, INSERT, SAVE, INSERT_BATCH, COUNT, PAGE_AT, PAGE_AFTER,
+            SALDO, MONEY_FORMAT, MONEY_FORMAT_TO, MONEY_PARSE, QUERY_OF, QUERY_MATCHES, CODE, ENTWURF, BUCHUNG, SPLIT,
+            PAGE_SIZE, PAGE_KEY, COUNT_ROWS, PIVOT, PERIODE;
+
+    static {
+        try {
+            MethodHandles.Lookup l = MethodHandles.lookup();
+            Class<?> db = Class.forName("DbLite");
+            Class<?> query = Class.forName("EntryQuery");
+            Class<?> page = Class.forName("LedgerPage");
+            Class<?> buchung = Class.forName("Buchung");
+            Class<?> key = Class.forName("DbLite$EntryKey");
+            Class<?> count = Class.forName("DbLite$EntryCount");
+            Class<?> importer = Class.forName("CsvImporter");
+            Class<?> money = Class.forName("Money");
+            Class<?> periode = Class.forName("Pivot$Periode");
+            Class<?> table = Class.forName("Pivot$Table");
+            MethodHandles.Lookup dbL = MethodHandles.privateLookupIn(db, l);
+            MethodHandles.Lookup pageL = MethodHandles.privateLookupIn(page, l);
+            MethodHandles.Lookup queryL = MethodHandles.privateLookupIn(query, l);
+
+            INIT = dbL.findStatic(db, "init", MethodType.methodType(void.class, String.class));
+            SHUTDOWN = dbL.findStatic(db, "shutdown", MethodType.methodType(void.class));
+            INSERT = dbL.findStatic(db, "insert", MethodType.methodType(long.class,
+                    String.class, LocalDate.class, String.class, String.class, long.class));
+            SAVE = dbL.findStatic(db, "save", MethodType.methodType(CompletableFuture.class,
+                    String.class, LocalDate.class, String.class, String.class, long.class));
+            INSERT_BATCH = dbL.findStatic(db, "insertBatch", MethodType.methodType(void.class,
+                    List.class, String.class, long.class));
+            COUNT = generic(dbL.findStatic(db, "countEntries", MethodType.methodType(count, query)));
+            PAGE_AT = generic(dbL.findStatic(db, "pageAt", MethodType.methodType(page,
+                    query, int.class, int.class, int.class, long.class)));
+            PAGE_AFTER = generic(dbL.findStatic(db, "pageAfter", MethodType.methodType(page,
+                    query, key, int.class, long.class)));
+            PIVOT = generic(dbL.findStatic(db, "pivot", MethodType.methodType(table, query, periode)));
+            PERIODE = generic(MethodHandles.privateLookupIn(periode, l).findStatic(periode, "valueOf",
+                    MethodType.methodType(periode, String.class)));
+            SALDO = generic(dbL.findStatic(db, "saldoCents", MethodType.methodType(long.class, query)));
+            MethodHandles.Lookup moneyL = MethodHandles.privateLookupIn(money, l);
+            MONEY_FORMAT = moneyL.findStatic(money, "format", MethodType.methodType(String.class,
+                    long.class, boolean.class));
+            MONEY_FORMAT_TO = moneyL.findStatic(money, "formatTo", MethodType.methodType(int.class,
+                    long.class, boolean.class, char[].class));
+            MONEY_PARSE = moneyL.findStatic(money, "parse", MethodType.methodType(long.class, CharSequence.class));
+            QUERY_OF = generic(queryL.findStatic(query, "of", MethodType.methodType(query,
+                    LocalDate.class, LocalDate.class, String.class)));
+            QUERY_MATCHES = generic(queryL.findVirtual(query, "matches", MethodType.methodType(boolean.class,
+                    int.class, byte.class)));
+            CODE = pageL.findStatic(page, "code", MethodType.methodType(byte.class, String.class));
+            PAGE_SIZE = generic(pageL.findVirtual(page, "size", MethodType.methodType(int.class)));
+            PAGE_KEY = generic(pageL.findVirtual(page, "key", MethodType.methodType(key, int.class)));
+            COUNT_ROWS = generic(dbL.findVirtual(count, "rows", MethodType.methodType(int.class)));
+            MethodHandles.Lookup bL = MethodHandles.privateLookupIn(buchung, l);
+            ENTWURF = generic(bL.findStatic(buchung, "entwurf", MethodType.methodType(buchung,
+                    String.class, LocalDate.class, String.class, String.class, long.class)));
+            BUCHUNG = generic(bL.findConstructor(buchung, MethodType.methodType(void.class,
+                    long.class, String.class, LocalDate.class, String.class, String.class, long.class)));
+            SPLIT = MethodHandles.privateLookupIn(importer, l).findStatic(importer, "split",
+                    MethodType.methodType(List.class, String.class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private App() {}
+
+    // Anwendungstypen als Object, damit invokeExact ohne deren Klassen auskommt
+    private static MethodHandle generic(MethodHandle h) {
+        MethodType t = h.type();
+        for (int i = 0; i < t.parameterCount(); i++) {
+            if (!t.parameterType(i).isPrimitive()) t = t.changeParameterType(i, Object.class);
+        }
+        if (!t.returnType().isPrimitive()) t = t.changeReturnType(Object.class);
+        return h.asType(t);
+    }
+
+    static void init(String file) {
+        try {
+            INIT.invokeExact(file);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static void shutdown() {
+        try {
+            SHUTDOWN.invokeExact();
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static long insert(String belegnr, LocalDate datum, String kategorie, String beschreibung, long cents) {
+        try {
+            return (long) INSERT.invokeExact(belegnr, datum, kategorie, beschreibung, cents);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    /** Kehrt zurück, sobald die Buchung dauerhaft ist (siehe {@code DbLite.save}). */
+    static void save(String belegnr, LocalDate datum, String kategorie, String beschreibung, long cents) {
+        try {
+            ((CompletableFuture<?>) SAVE.invokeExact(belegnr, datum, kategorie, beschreibung, cents)).join();
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    /** @param rows Buchungen aus {@link #buchung} */
+    static void insertBatch(List<Object> rows) {
+        try {
+            INSERT_BATCH.invokeExact((List) rows, (String) null, 0L);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static Object buchung(String belegnr, LocalDate datum, String kategorie, String beschreibung, long cents) {
+        try {
+            return (Object) BUCHUNG.invokeExact(0L, (Object) belegnr, (Object) datum, (Object) kategorie,
+                    (Object) beschreibung, cents);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static Object entwurf(String belegnr, LocalDate datum, String kategorie, String beschreibung, long cents) {
+        try {
+            return (Object) ENTWURF.invokeExact((Object) belegnr, (Object) datum, (Object) kategorie,
+                    (Object) beschreibung, cents);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static Object query(LocalDate von, LocalDate bis, String mode) {
+        try {
+            return (Object) QUERY_OF.invokeExact((Object) von, (Object) bis, (Object) mode);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static boolean matches(Object query, int epochDay, byte kategorie) {
+        try {
+            return (boolean) QUERY_MATCHES.invokeExact(query, epochDay, kategorie);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static byte code(String kategorie) {
+        try {
+            return (byte) CODE.invokeExact(kategorie);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    /** Anzahl der Treffer aus {@code DbLite.countEntries}. */
+    static int count(Object query) {
+        try {
+            return (int) COUNT_ROWS.invokeExact((Object) COUNT.invokeExact(query));
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static Object pageAt(Object query, int offset, int limit, int total) {
+        try {
+            return (Object) PAGE_AT.invokeExact(query, offset, limit, total, Long.MAX_VALUE);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static Object pageAfter(Object query, Object key, int limit) {
+        try {
+            return (Object) PAGE_AFTER.invokeExact(query, key, limit, Long.MAX_VALUE);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static int pageSize(Object page) {
+        try {
+            return (int) PAGE_SIZE.invokeExact(page);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static Object lastKey(Object page) {
+        try {
+            return (Object) PAGE_KEY.invokeExact(page, pageSize(page) - 1);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static long saldo(Object query) {
+        try {
+            return (long) SALDO.invokeExact(query);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    /** @param periode {@code "MONAT"}, {@code "QUARTAL"} oder {@code "JAHR"} */
+    static Object pivot(Object query, String periode) {
+        try {
+            return (Object) PIVOT.invokeExact(query, (Object) PERIODE.invokeExact((Object) periode));
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static String formatMoney(long cents, boolean grouping) {
+        try {
+            return (String) MONEY_FORMAT.invokeExact(cents, grouping);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static int formatMoneyTo(long cents, boolean grouping, char[] buf) {
+        try {
+            return (int) MONEY_FORMAT_TO.invokeExact(cents, grouping, buf);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static long parseMoney(CharSequence s) {
+        try {
+            return (long) MONEY_PARSE.invokeExact(s);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    static List<String> split(String line) {
+        try {
+            return (List<String>) SPLIT.invokeExact(line);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    private static RuntimeException rethrow(Throwable t) {
+        if (t instanceof RuntimeException r) return r;
+        if (t instanceof Error e) throw e;
+        return new IllegalStateException(t);
+    }
+}
@@ -0,0 +1,81 @@
+package bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@summary Kleine Pfade pro Zeile: Betragsformatierung und -parser, CSV-Zerlegung, Filterprüfung.}
+ * Die Eingaben kommen reihum aus vorbereiteten Arrays, damit der JIT keine Konstanten faltet.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class FormatBench {
+
+    private static final int N = 1024;
+
+    private final long[] cents = new long[N];
+    private final String[] lines = new String[N];
+    private final String[] amounts = new String[N];
+    private final char[] buf = new char[32];
+    private final int[] days = new int[N];
+    private final byte[] kats = new byte[N];
+    private Object query;
+    private int i;
+
+    @Setup
+    public void prepare() {
+        LedgerGenerator gen = new LedgerGenerator(7);
+        byte einnahmen = App.code("Einnahmen");
+        byte ausgaben = App.code("Ausgaben");
+        for (int k = 0; k < N; k++) {
+            cents[k] = gen.cents();
+            lines[k] = gen.csvLine();
+            amounts[k] = App.formatMoney(cents[k], k % 2 == 0);
+            days[k] = (int) gen.date().toEpochDay();
+            kats[k] = cents[k] < 0 ? ausgaben : einnahmen;
+        }
+        query = App.query(LocalDate.of(2020, 1, 1), LocalDate.of(2020, 12, 31), "Ausgaben");
+    }
+
+    private int next() {
+        return i = (i + 1) & (N - 1);
+    }
+
+    @Benchmark
+    public String formatMoney() {
+        return App.formatMoney(cents[next()], false);
+    }
+
+    // in den wiederverwendeten Puffer, wie der Zellen-Renderer
+    @Benchmark
+    public int formatMoneyTo() {
+        return App.formatMoneyTo(cents[next()], true, buf);
+    }
+
+    @Benchmark
+    public long parseMoney() {
+        return App.parseMoney(amounts[next()]);
+    }
+
+    @Benchmark
+    public List<String> splitCsvLine() {
+        return App.split(lines[next()]);
+    }
+
+    @Benchmark
+    public Object entwurf() {
+        return App.entwurf("B1", LedgerGenerator.START, "Ausgaben", "Miete", cents[next()]);
+    }
+
+    @Benchmark
+    public boolean matchesFilter() {
+        int k = next();
+        return App.matches(query, days[k], kats[k]);
+    }
+}
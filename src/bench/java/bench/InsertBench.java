@@ -0,0 +1,69 @@
+package bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@summary Schreibdurchsatz: einzelne Buchungen aus dem Dialog und Stapel aus dem CSV-Import.}
+ * Alle Werte sind Buchungen pro Sekunde. {@code insertConcurrent} schreibt einzeln aus acht
+ * Threads gleichzeitig und zeigt, wie weit der Group Commit der Ingest-Warteschlange trägt.
+ * Jeder Lauf schreibt in eine frische temporäre Datei.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class InsertBench {
+
+    private static final int BATCH = 1_000;
+
+    private Path file;
+    private LedgerGenerator gen;
+    private List<Object> batch;
+
+    @Setup(Level.Trial)
+    public void open() {
+        file = LedgerGenerator.emptyLedger();
+        App.init(file.toString());
+        gen = new LedgerGenerator(1);
+        batch = gen.rows(BATCH);
+    }
+
+    @TearDown(Level.Trial)
+    public void close() {
+        App.shutdown();
+        LedgerGenerator.delete(file);
+    }
+
+    @Benchmark
+    public long insertSingle() {
+        return App.insert("B1", gen.date(), "Ausgaben", "Büromaterial", gen.cents());
+    }
+
+    @Benchmark
+    @Threads(8)
+    public long insertConcurrent(Producer p) {
+        return App.insert("B1", p.gen.date(), "Ausgaben", "Büromaterial", p.gen.cents());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void insertBatch() {
+        App.insertBatch(batch);
+    }
+
+    /** Eigener Generator je Thread, {@link LedgerGenerator} ist nicht threadsicher. */
+    @State(Scope.Thread)
+    public static class Producer {
+        LedgerGenerator gen;
+
+        @Setup(Level.Trial)
+        public void open() {
+            gen = new LedgerGenerator(Thread.currentThread().getId());
+        }
+    }
+}
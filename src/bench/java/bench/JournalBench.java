@@ -0,0 +1,55 @@
+package bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * {@summary Speichern einzelner Buchungen mit Journal ({@code -Dbuchhaltung.journal=true}).}
+ * Gemessen wird die Zeit, bis {@code DbLite.save} die Buchung als dauerhaft meldet, in Mikrosekunden
+ * je Buchung. Zum Vergleich ohne Journal dient {@code InsertBench.insertSingle}; dort endet die
+ * Messung mit dem Commit.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(jvmArgsAppend = "-Dbuchhaltung.journal=true")
+public class JournalBench {
+
+    private Path file;
+    private LedgerGenerator gen;
+
+    @Setup(Level.Trial)
+    public void open() {
+        file = LedgerGenerator.emptyLedger();
+        App.init(file.toString());
+        gen = new LedgerGenerator(1);
+    }
+
+    @TearDown(Level.Trial)
+    public void close() {
+        App.shutdown();
+        LedgerGenerator.delete(file);
+        // leer nach dem Herunterfahren, außer die Anwendung wurde abgebrochen
+        Path journal = file.resolveSibling(file.getFileName() + ".journal");
+        if (!Files.exists(journal)) return;
+        try (Stream<Path> s = Files.walk(journal)) {
+            for (Path f : s.sorted(Comparator.reverseOrder()).toList()) Files.delete(f);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Benchmark
+    public void saveSingle() {
+        App.save("B1", gen.date(), "Ausgaben", "Büromaterial", gen.cents());
+    }
+}
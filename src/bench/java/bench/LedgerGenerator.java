@@ -0,0 +1,125 @@
+package bench;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * {@summary Erzeugt synthetische Journale als temporäre SQLite-Dateien.}
+ * Gleicher Seed, gleiche Daten: Buchungen über zehn Jahre ab {@link #START}, etwa 60 % Ausgaben,
+ * Beträge bis 5.000 €. Fertige Dateien werden unter {@code java.io.tmpdir/buchhaltung-bench}
+ * wiederverwendet, damit nicht jeder Fork eine Million Zeilen neu schreibt.
+ */
+final class LedgerGenerator {
+
+    static final LocalDate START = LocalDate.of(2016, 1, 1);
+    static final int DAYS = 3650;
+
+    private static final long SEED = 20251018L;
+    private static final int BATCH = 10_000;
+    private static final Path DIR = Path.of(System.getProperty("java.io.tmpdir"), "buchhaltung-bench");
+
+    private static final String[] TEXTE = {
+            "Büromaterial", "Miete", "Honorar Projekt", "Strom", "Reisekosten; Bahn", "Software-Lizenz",
+            "Kundenzahlung", "Telefon", "Versicherung", "Bewirtung"
+    };
+
+    private final SplittableRandom random;
+    private long serial;
+
+    LedgerGenerator(long seed) {
+        random = new SplittableRandom(seed);
+    }
+
+    /**
+     * {@summary Journal mit genau {@code rows} Buchungen; wird beim ersten Aufruf angelegt.}
+     * Die Datenbank ist danach geschlossen.
+     */
+    static synchronized Path ledger(int rows) {
+        Path file = DIR.resolve("ledger-" + rows + ".db");
+        if (Files.exists(file)) return file;
+        try {
+            Files.createDirectories(DIR);
+            Path tmp = Files.createTempFile(DIR, "ledger-" + rows + "-", ".tmp");
+            Files.delete(tmp);
+            App.init(tmp.toString());
+            try {
+                LedgerGenerator gen = new LedgerGenerator(SEED);
+                for (int done = 0; done < rows; done += BATCH) {
+                    App.insertBatch(gen.rows(Math.min(BATCH, rows - done)));
+                }
+            } finally {
+                App.shutdown();
+            }
+            Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE);
+            return file;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** Leere, neu angelegte Datenbankdatei für Schreib-Benchmarks. */
+    static Path emptyLedger() {
+        try {
+            Files.createDirectories(DIR);
+            Path file = Files.createTempFile(DIR, "empty-", ".db");
+            Files.delete(file);
+            return file;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** Löscht eine Datenbankdatei samt WAL- und SHM-Datei. */
+    static void delete(Path file) {
+        try {
+            for (String suffix : new String[]{"", "-wal", "-shm"}) {
+                Files.deleteIfExists(file.resolveSibling(file.getFileName() + suffix));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** Die nächsten {@code n} Buchungen als Objekte der Anwendung ({@code Buchung}). */
+    List<Object> rows(int n) {
+        List<Object> out = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            boolean ausgabe = random.nextInt(10) < 6;
+            long cents = random.nextLong(100, 500_000);
+            out.add(App.buchung(belegnr(), date(), ausgabe ? "Ausgaben" : "Einnahmen", beschreibung(),
+                    ausgabe ? -cents : cents));
+        }
+        return out;
+    }
+
+    /** Eine Zeile im Importformat {@code belegnr;datum;kategorie;beschreibung;betrag}. */
+    String csvLine() {
+        boolean ausgabe = random.nextInt(10) < 6;
+        long cents = random.nextLong(100, 500_000);
+        return belegnr() + ";" + date() + ";" + (ausgabe ? "Ausgaben" : "Einnahmen") + ";\"" + beschreibung()
+                + "\";" + cents / 100 + "," + (cents % 100 < 10 ? "0" : "") + cents % 100;
+    }
+
+    LocalDate date() {
+        return START.plusDays(random.nextInt(DAYS));
+    }
+
+    int cents() {
+        return (int) random.nextLong(-500_000, 500_000);
+    }
+
+    private String belegnr() {
+        return "B" + (++serial);
+    }
+
+    private String beschreibung() {
+        return TEXTE[random.nextInt(TEXTE.length)];
+    }
+}
@@ -0,0 +1,80 @@
+package bench;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@summary Lesepfade der Tabelle und des Saldos bei 10 000 bis 1 000 000 Buchungen.}
+ * {@code firstWindow} ist das, was beim Öffnen der Tabelle anfällt (Zählung und erste Seite),
+ * {@code scanAll} liest das ganze Journal seitenweise wie früher {@code tableModelAll()}.
+ * {@code filterMonth} und {@code saldoYear} entsprechen einem Filterwechsel bzw. der
+ * Saldo-Anzeige, {@code pivotMonths} dem Bericht je Monat über das ganze Journal.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class LoadBench {
+
+    private static final int PAGE = 200;
+
+    @Param({"10000", "100000", "1000000"})
+    public int rows;
+
+    private Object all;
+    private Object month;
+    private Object year;
+
+    @Setup(Level.Trial)
+    public void open() {
+        App.init(LedgerGenerator.ledger(rows).toString());
+        all = App.query(null, null, "Alle");
+        month = App.query(LocalDate.of(2020, 3, 1), LocalDate.of(2020, 3, 31), "Ausgaben");
+        year = App.query(LocalDate.of(2020, 1, 1), LocalDate.of(2020, 12, 31), "Alle");
+    }
+
+    @TearDown(Level.Trial)
+    public void close() {
+        App.shutdown();
+    }
+
+    @Benchmark
+    public Object firstWindow() {
+        return App.pageAt(all, 0, PAGE, App.count(all));
+    }
+
+    @Benchmark
+    public Object middleWindow() {
+        return App.pageAt(all, rows / 2, PAGE, rows);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void scanAll(Blackhole bh) {
+        Object page = App.pageAt(all, 0, PAGE, rows);
+        while (App.pageSize(page) == PAGE) {
+            bh.consume(page);
+            page = App.pageAfter(all, App.lastKey(page), PAGE);
+        }
+        bh.consume(page);
+    }
+
+    @Benchmark
+    public Object filterMonth() {
+        return App.pageAt(month, 0, PAGE, App.count(month));
+    }
+
+    @Benchmark
+    public long saldoYear() {
+        return App.saldo(year);
+    }
+
+    @Benchmark
+    public Object pivotMonths() {
+        return App.pivot(all, "MONAT");
+    }
+}
@@ -0,0 +1,76 @@
+import javax.swing.*;
+import javax.swing.table.DefaultTableCellRenderer;
+import java.awt.*;
+
+/**
+ * {@summary Zeichnet Beträge rechtsbündig direkt aus einem wiederverwendeten Zeichenpuffer.}
+ * Der Renderer formatiert den Cent-Betrag mit {@link Money#formatTo} in seinen Puffer und
+ * zeichnet ihn mit {@link Graphics#drawChars}; beim Scrollen entsteht so pro Zelle kein String.
+ * Liefert das Modell statt des Betrags {@link #CENTS}, liest der Renderer den Betrag als
+ * {@code long} über {@link Amounts} nach; so wird auch beim Abfragen der Zelle nichts geboxt.
+ * Andere Werte (z. B. der Platzhalter einer noch ladenden Seite) zeigt er wie ein normales Label.
+ */
+final class AmountCellRenderer extends DefaultTableCellRenderer {
+
+    private static final long serialVersionUID = 1L;
+
+    /** Zellwert eines {@link Amounts}-Modells: Der Betrag ist über {@link Amounts#cents} zu lesen. */
+    static final Object CENTS = new Object() {
+        @Override
+        public String toString() {
+            return "";
+        }
+    };
+
+    /**
+     * {@summary Tabellenmodell, das Beträge ohne Boxing herausgibt.}
+     */
+    interface Amounts {
+        /**
+         * @param row Zeile im Modell
+         * @param col Spalte im Modell, deren Zellwert {@link #CENTS} ist
+         * @return Betrag in Cent
+         */
+        long cents(int row, int col);
+    }
+
+    private final char[] buf = new char[Money.MAX_CHARS];
+    private int len = -1;   // -1: kein Betrag, Text des Labels gilt
+
+    AmountCellRenderer() {
+        setHorizontalAlignment(RIGHT);
+    }
+
+    @Override
+    public Component getTableCellRendererComponent(JTable t, Object v, boolean selected, boolean focus, int row, int col) {
+        if (v != CENTS || !(t.getModel() instanceof Amounts a))
+            return super.getTableCellRendererComponent(t, v, selected, focus, row, col);
+        super.getTableCellRendererComponent(t, null, selected, focus, row, col);
+        len = Money.formatTo(a.cents(t.convertRowIndexToModel(row), t.convertColumnIndexToModel(col)), false, buf);
+        return this;
+    }
+
+    @Override
+    protected void setValue(Object v) {
+        if (v instanceof Long cents) {
+            len = Money.formatTo(cents, false, buf);
+            setText("");
+        } else {
+            len = -1;
+            setText(v == null ? "" : v.toString());
+        }
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        super.paintComponent(g);
+        if (len < 0) return;
+        FontMetrics fm = g.getFontMetrics(getFont());
+        Insets in = getInsets();
+        int x = getWidth() - in.right - fm.charsWidth(buf, 0, len);
+        int y = in.top + (getHeight() - in.top - in.bottom - fm.getHeight()) / 2 + fm.getAscent();
+        g.setColor(getForeground());
+        g.setFont(getFont());
+        g.drawChars(buf, 0, len, x, y);
+    }
+}
@@ -0,0 +1,52 @@
+import javax.swing.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * {@summary Führt Datenbankarbeit außerhalb des Event Dispatch Threads aus.}
+ * Eigener Thread-Pool in der Größe des Leser-Pools von {@link DbPool}; Ergebnisse werden
+ * als {@link CompletableFuture} geliefert und bei Bedarf zurück auf den EDT gereicht.
+ * Abgebrochene Futures, die noch in der Warteschlange stehen, laufen gar nicht erst an.
+ */
+final class AsyncDb {
+
+    private static final AtomicInteger THREAD_NO = new AtomicInteger();
+    private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(4, r -> {
+        Thread t = new Thread(r, "db-worker-" + THREAD_NO.incrementAndGet());
+        t.setDaemon(true);
+        return t;
+    });
+
+    private AsyncDb() {}
+
+    /**
+     * {@summary Startet eine Datenbankaufgabe im Hintergrund.}
+     */
+    static <T> CompletableFuture<T> supply(Supplier<T> work) {
+        return CompletableFuture.supplyAsync(work, EXECUTOR);
+    }
+
+    /**
+     * {@summary Reicht das Ergebnis einer Aufgabe auf dem EDT weiter.}
+     * Abgebrochene Aufgaben melden sich weder als Erfolg noch als Fehler.
+     * @param ok    wird mit dem Ergebnis aufgerufen
+     * @param error wird mit der eigentlichen Ursache eines Fehlers aufgerufen
+     */
+    static <T> void onEdt(CompletableFuture<T> f, Consumer<? super T> ok, Consumer<Throwable> error) {
+        f.whenComplete((v, ex) -> SwingUtilities.invokeLater(() -> {
+            if (f.isCancelled()) return;
+            if (ex == null) {
+                ok.accept(v);
+                return;
+            }
+            Throwable cause = (ex instanceof CompletionException && ex.getCause() != null) ? ex.getCause() : ex;
+            if (!(cause instanceof CancellationException)) error.accept(cause);
+        }));
+    }
+}
@@ -0,0 +1,230 @@
+import org.sqlite.SQLiteConfig;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.*;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * {@summary Sicherungen der Datenbank im laufenden Betrieb, mit Aufbewahrung und geprüfter Wiederherstellung.}
+ * Eine Sicherung ist ein Verzeichnis wie {@code backup/app-20261018-143000} neben der Datenbank.
+ * Es enthält die Hauptdatei, von {@link DbPool#backup} seitenweise aus einem festen Stand kopiert,
+ * die in diesem Stand eingetragenen Archive (siehe {@link Partitions}; sie ändern sich nicht mehr
+ * und werden als Dateien kopiert) und ein {@code MANIFEST} mit Größe und SHA-256 jeder Datei.
+ * Unter seinem endgültigen Namen erscheint das Verzeichnis erst, wenn alle Dateien die
+ * Integritätsprüfung bestanden haben; danach werden die ältesten Sicherungen über die
+ * Aufbewahrungszahl hinaus gelöscht. {@link #verify} prüft eine Sicherung vor dem Wiederherstellen.
+ */
+final class Backup {
+
+    private static final Logger LOG = Logger.getLogger("Buchhaltung.db");
+    private static final DateTimeFormatter STAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+    private static final String MANIFEST = "MANIFEST";
+    private static final String PARTIAL = ".tmp";
+
+    /**
+     * {@summary Geprüfte Sicherung.}
+     * @param main     Hauptdatei der Sicherung
+     * @param archives Archivdateien der Sicherung, Dateiname wie im Katalog
+     * @param entries  Buchungen in der Hauptdatei, zum Abgleich nach dem Wiederherstellen
+     */
+    record Verified(Path main, List<Path> archives, long entries) {}
+
+    private final Path db;
+    private final Path dir;
+    private final String baseName;
+    private final int keep;
+    private final long pauseMicros;
+
+    /**
+     * @param db          Hauptdatei
+     * @param dir         Verzeichnis der Sicherungen
+     * @param keep        so viele Sicherungen bleiben erhalten
+     * @param pauseMicros Pause zwischen den Kopierschritten (siehe {@link DbPool#backup})
+     */
+    Backup(Path db, Path dir, int keep, long pauseMicros) {
+        this.db = db.toAbsolutePath();
+        this.dir = dir.toAbsolutePath();
+        String name = this.db.getFileName().toString();
+        this.baseName = name.endsWith(".db") ? name.substring(0, name.length() - 3) : name;
+        this.keep = keep;
+        this.pauseMicros = pauseMicros;
+    }
+
+    /**
+     * {@summary Legt eine neue Sicherung an und löscht danach die überzähligen alten.}
+     * @return Verzeichnis der Sicherung
+     */
+    synchronized Path create(DbPool pool) throws SQLException, IOException {
+        Files.createDirectories(dir);
+        removePartial();
+        String name = baseName + "-" + STAMP.format(LocalDateTime.now());
+        Path target = dir.resolve(name);
+        for (int n = 2; Files.exists(target); n++) target = dir.resolve(name + "-" + n);
+        Path tmp = target.resolveSibling(target.getFileName() + PARTIAL);
+        Files.createDirectory(tmp);
+        try {
+            Path main = tmp.resolve(db.getFileName());
+            pool.backup(main, pauseMicros);
+            // the copy inherits WAL mode; without it the file is self-contained and opens read-only
+            try (Connection c = DriverManager.getConnection("jdbc:sqlite:" + main);
+                 Statement st = c.createStatement()) {
+                st.execute("PRAGMA journal_mode=DELETE");
+            }
+            List<String> names = new ArrayList<>();
+            names.add(main.getFileName().toString());
+            for (String archive : check(main, true)) {
+                Path copy = tmp.resolve(archive);
+                Files.copy(db.resolveSibling(archive), copy);
+                check(copy, false);
+                names.add(archive);
+            }
+            try (BufferedWriter w = Files.newBufferedWriter(tmp.resolve(MANIFEST), StandardCharsets.UTF_8)) {
+                for (String file : names) {
+                    Path f = tmp.resolve(file);
+                    w.write(sha256(f) + " " + Files.size(f) + " " + file + "\n");
+                }
+            }
+            Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (SQLException | IOException | RuntimeException e) {
+            deleteTree(tmp);
+            throw e;
+        }
+        LOG.info("Backup written to " + target);
+        prune();
+        return target;
+    }
+
+    /** Hauptdatei, die gesichert wird. */
+    Path db() {
+        return db;
+    }
+
+    /** Vollständige Sicherungen, die neueste zuerst. */
+    List<Path> list() throws IOException {
+        List<Path> out = new ArrayList<>();
+        if (!Files.isDirectory(dir)) return out;
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(dir, baseName + "-*")) {
+            for (Path p : ds) if (Files.isRegularFile(p.resolve(MANIFEST))) out.add(p);
+        }
+        // the timestamp in the name sorts chronologically
+        out.sort(Comparator.comparing((Path p) -> p.getFileName().toString()).reversed());
+        return out;
+    }
+
+    private void prune() throws IOException {
+        List<Path> all = list();
+        for (int i = keep; i < all.size(); i++) {
+            deleteTree(all.get(i));
+            LOG.info("Removed old backup " + all.get(i));
+        }
+    }
+
+    // left behind by a backup that was interrupted, e.g. by exiting the application
+    private void removePartial() throws IOException {
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(dir, baseName + "-*" + PARTIAL)) {
+            for (Path p : ds) deleteTree(p);
+        }
+    }
+
+    /**
+     * {@summary Prüft eine Sicherung: Größe und Prüfsumme jeder Datei, Integrität der Datenbanken, Vollständigkeit der Archive.}
+     * @throws IOException wenn eine Datei fehlt, verändert ist oder die Prüfung nicht besteht
+     */
+    static Verified verify(Path snapshot) throws IOException, SQLException {
+        Path manifest = snapshot.resolve(MANIFEST);
+        if (!Files.isRegularFile(manifest)) throw new IOException(snapshot + " is not a backup (no " + MANIFEST + ")");
+        List<Path> files = new ArrayList<>();
+        for (String line : Files.readAllLines(manifest, StandardCharsets.UTF_8)) {
+            if (line.isBlank()) continue;
+            String[] f = line.split(" ", 3);
+            if (f.length != 3) throw new IOException("Malformed line in " + manifest + ": " + line);
+            Path file = snapshot.resolve(f[2]);
+            if (!Files.isRegularFile(file)) throw new IOException("Missing " + file);
+            if (Files.size(file) != Long.parseLong(f[1]) || !sha256(file).equals(f[0])) {
+                throw new IOException("Checksum mismatch: " + file);
+            }
+            files.add(file);
+        }
+        if (files.isEmpty()) throw new IOException("Empty " + manifest);
+        Path main = files.get(0);
+        List<Path> archives = new ArrayList<>();
+        for (String archive : check(main, true)) {
+            Path file = snapshot.resolve(archive);
+            if (!files.contains(file)) throw new IOException("Archive " + archive + " is missing in " + snapshot);
+            check(file, false);
+            archives.add(file);
+        }
+        long entries;
+        try (Connection c = readOnly(main);
+             Statement st = c.createStatement();
+             ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM entry")) {
+            rs.next();
+            entries = rs.getLong(1);
+        }
+        return new Verified(main, List.copyOf(archives), entries);
+    }
+
+    // integrity check of one copied file -> for the main file the archive files it refers to
+    private static List<String> check(Path file, boolean main) throws SQLException, IOException {
+        List<String> archives = new ArrayList<>();
+        try (Connection c = readOnly(file);
+             Statement st = c.createStatement()) {
+            // archives are small and were checked when written, the cheaper check suffices
+            try (ResultSet rs = st.executeQuery(main ? "PRAGMA integrity_check" : "PRAGMA quick_check")) {
+                String result = rs.next() ? rs.getString(1) : "no result";
+                if (!"ok".equals(result)) throw new IOException("Integrity check of " + file + " failed: " + result);
+            }
+            if (!main) return archives;
+            try (ResultSet rs = st.executeQuery("SELECT count(*) FROM sqlite_master WHERE name = 'archive'")) {
+                if (rs.next() && rs.getInt(1) == 0) return archives;   // schema before archives existed
+            }
+            try (ResultSet rs = st.executeQuery("SELECT datei FROM archive ORDER BY jahr")) {
+                while (rs.next()) archives.add(rs.getString(1));
+            }
+        }
+        return archives;
+    }
+
+    private static Connection readOnly(Path file) throws SQLException {
+        SQLiteConfig cfg = new SQLiteConfig();
+        cfg.setReadOnly(true);
+        return cfg.createConnection("jdbc:sqlite:" + file);
+    }
+
+    private static String sha256(Path file) throws IOException {
+        MessageDigest md;
+        try {
+            md = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        byte[] buf = new byte[1 << 16];
+        try (InputStream in = Files.newInputStream(file)) {
+            for (int n; (n = in.read(buf)) > 0; ) md.update(buf, 0, n);
+        }
+        return HexFormat.of().formatHex(md.digest());
+    }
+
+    private static void deleteTree(Path p) throws IOException {
+        if (!Files.exists(p)) return;
+        try (Stream<Path> s = Files.walk(p)) {
+            for (Path f : s.sorted(Comparator.reverseOrder()).toList()) Files.delete(f);
+        }
+    }
+}
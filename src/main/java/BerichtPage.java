@@ -0,0 +1,175 @@
+import javax.swing.*;
+import javax.swing.filechooser.FileNameExtensionFilter;
+import javax.swing.table.AbstractTableModel;
+import java.awt.*;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * {@summary Bericht zum aktuellen Filter: Summen je Kategorie und Monat, Quartal oder Jahr.}
+ * Berechnet wird im Hintergrund über {@link DbLite#pivot}; ein Wechsel der Periode rechnet neu
+ * und verwirft ein noch ausstehendes Ergebnis. Das angezeigte Ergebnis lässt sich als CSV speichern.
+ */
+public class BerichtPage {
+    private JPanel rootPnl;
+    private JPanel northPnl;
+    private JPanel southPnl;
+    private JLabel headerLbl;
+    private JComboBox<Pivot.Periode> periodeComboB;
+    private JLabel statusLbl;
+    private JScrollPane berichtScrollPnl;
+    private JTable berichtTable;
+    private JButton exportierenBtn;
+    private JButton schliessenBtn;
+
+    private final EntryQuery query;
+    private Pivot.Table table;
+    private CompletableFuture<Pivot.Table> running;
+
+    /**
+     * @param query Filter der Hauptseite; ohne Zeitraum reicht der Bericht von der ersten bis zur letzten Buchung
+     */
+    public BerichtPage(EntryQuery query) {
+        this.query = query;
+        configureDropBox();
+        wireListeners();
+        compute();
+    }
+
+    /**
+     * {@summary Befüllt die Perioden-Auswahl, Voreinstellung ist Monat.}
+     */
+    private void configureDropBox() {
+        for (Pivot.Periode p : Pivot.Periode.values()) periodeComboB.addItem(p);
+        periodeComboB.setSelectedItem(Pivot.Periode.MONAT);
+    }
+
+    /**
+     * {@summary Verdrahtet Periodenwechsel, Export und Schließen.}
+     */
+    private void wireListeners() {
+        periodeComboB.addActionListener(e -> compute());
+        exportierenBtn.addActionListener(e -> exportCsv());
+        schliessenBtn.addActionListener(e -> {
+            if (running != null) running.cancel(false);
+            Window w = SwingUtilities.getWindowAncestor(rootPnl);
+            if (w != null) w.dispose();
+        });
+    }
+
+    private void compute() {
+        Pivot.Periode p = (Pivot.Periode) periodeComboB.getSelectedItem();
+        if (running != null) running.cancel(false);
+        exportierenBtn.setEnabled(false);
+        statusLbl.setText("Berechne …");
+        long t0 = System.nanoTime();
+        CompletableFuture<Pivot.Table> f = AsyncDb.supply(() -> DbLite.pivot(query, p));
+        running = f;
+        AsyncDb.onEdt(f, t -> {
+            if (running != f) return;   // Periode inzwischen gewechselt
+            show(t);
+            statusLbl.setText(t.periods() + " Perioden, " + (System.nanoTime() - t0) / 1_000_000 + " ms");
+        }, ex -> {
+            if (running == f) statusLbl.setText("Fehler: " + ex.getMessage());
+        });
+    }
+
+    private void show(Pivot.Table t) {
+        table = t;
+        berichtTable.setModel(new PivotTableModel(t));
+        var cm = berichtTable.getColumnModel();
+        AmountCellRenderer amount = new AmountCellRenderer();
+        // Kategorien und Saldo sind Beträge, die letzte Spalte eine Anzahl
+        for (int c = 1; c < cm.getColumnCount() - 1; c++) cm.getColumn(c).setCellRenderer(amount);
+        exportierenBtn.setEnabled(t.periods() > 0);
+    }
+
+    /**
+     * {@summary Schreibt den angezeigten Bericht im Hintergrund in eine CSV-Datei.}
+     */
+    private void exportCsv() {
+        Pivot.Table t = table;
+        JFileChooser fc = new JFileChooser();
+        fc.setFileFilter(new FileNameExtensionFilter("CSV-Dateien", "csv"));
+        fc.setSelectedFile(new File("bericht-" + t.periode().name().toLowerCase(Locale.ROOT) + ".csv"));
+        if (fc.showSaveDialog(rootPnl) != JFileChooser.APPROVE_OPTION) return;
+        Path file = fc.getSelectedFile().toPath();
+
+        exportierenBtn.setEnabled(false);
+        AsyncDb.onEdt(AsyncDb.supply(() -> {
+            try (Writer w = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+                t.writeCsv(w);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return file;
+        }), f -> {
+            exportierenBtn.setEnabled(true);
+            JOptionPane.showMessageDialog(rootPnl, "Bericht gespeichert: " + f.getFileName());
+        }, ex -> {
+            exportierenBtn.setEnabled(true);
+            JOptionPane.showMessageDialog(rootPnl, "Fehler: " + ex.getMessage());
+        });
+    }
+
+    /**
+     * {@summary Zeigt einen {@link Pivot.Table}: Periode, je Kategorie ein Betrag, Saldo und Anzahl, darunter die Summen.}
+     */
+    private static final class PivotTableModel extends AbstractTableModel {
+        private static final long serialVersionUID = 1L;
+
+        private final Pivot.Table t;
+
+        PivotTableModel(Pivot.Table t) {
+            this.t = t;
+        }
+
+        @Override
+        public int getRowCount() {
+            return t.periods() == 0 ? 0 : t.periods() + 1;
+        }
+
+        @Override
+        public int getColumnCount() {
+            return t.kategorien().size() + 3;
+        }
+
+        @Override
+        public String getColumnName(int c) {
+            if (c == 0) return t.periode().toString();
+            int k = c - 1;
+            if (k < t.kategorien().size()) return t.kategorien().get(k);
+            return k == t.kategorien().size() ? "Saldo" : "Buchungen";
+        }
+
+        @Override
+        public Class<?> getColumnClass(int c) {
+            return c == 0 ? String.class : Long.class;
+        }
+
+        @Override
+        public Object getValueAt(int row, int c) {
+            boolean sum = row == t.periods();
+            if (c == 0) return sum ? "Summe" : t.label(row);
+            int k = c - 1;
+            if (k < t.kategorien().size()) return sum ? t.total(k) : t.cents()[k][row];
+            if (k == t.kategorien().size()) return sum ? t.saldo() : t.saldo(row);
+            return sum ? t.buchungen() : t.buchungen(row);
+        }
+    }
+
+    //region Getter & Setter
+
+    public JPanel getRootPnl() {
+        return rootPnl;
+    }
+
+    //endregion
+}
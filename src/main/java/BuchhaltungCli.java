@@ -0,0 +1,217 @@
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * {@summary Kommandozeile für Berichte und Exporte ohne Oberfläche (z. B. nächtliche Jobs).}
+ * Nutzt dieselbe Persistenzschicht wie die Oberfläche, lädt aber weder AWT/Swing noch
+ * LGoodDatePicker. Listen werden direkt vom Cursor in die Ausgabe geschrieben, der
+ * Speicherbedarf hängt also nicht von der Größe des Journals ab.
+ * <pre>
+ * java -cp buchhaltung.jar BuchhaltungCli saldo      [Filter]
+ * java -cp buchhaltung.jar BuchhaltungCli kategorien [Filter]
+ * java -cp buchhaltung.jar BuchhaltungCli bericht    [Filter] [--periode monat|quartal|jahr] [--out datei.csv]
+ * java -cp buchhaltung.jar BuchhaltungCli liste      [Filter] [--out datei.csv]
+ * java -cp buchhaltung.jar BuchhaltungCli suche      --suche "miete jän" [Filter] [--limit 20]
+ * java -cp buchhaltung.jar BuchhaltungCli abschluss  --jahr 2023 [--db app.db]
+ * java -cp buchhaltung.jar BuchhaltungCli sichern    [--db app.db]
+ * java -cp buchhaltung.jar BuchhaltungCli wiederherstellen --aus backup/app-20261018-143000 [--db app.db]
+ *
+ * Filter: --von yyyy-MM-dd  --bis yyyy-MM-dd  --kategorie Einnahmen|Ausgaben  --suche text  --db app.db
+ * </pre>
+ * Die Liste hat das Format des CSV-Imports und lässt sich daher wieder einlesen. {@code suche}
+ * liefert die besten Volltexttreffer nach Relevanz statt nach Datum. {@code abschluss} verschiebt
+ * ein vergangenes Geschäftsjahr in seine eigene, schreibgeschützte Datei (siehe {@link Partitions}).
+ * {@code bericht} summiert je Kategorie und Periode (siehe {@link Pivot}). {@code sichern} legt im
+ * laufenden Betrieb eine Sicherung an, {@code wiederherstellen} prüft eine Sicherung und spielt sie
+ * zurück (siehe {@link Backup}).
+ */
+public class BuchhaltungCli {
+
+    private static final String USAGE = """
+            Aufruf: BuchhaltungCli <saldo|kategorien|bericht|liste|suche> [--von yyyy-MM-dd] [--bis yyyy-MM-dd]
+                                   [--kategorie Einnahmen|Ausgaben] [--suche text] [--db datei]
+                                   [--out datei] [--limit n] [--periode monat|quartal|jahr]
+                    BuchhaltungCli abschluss --jahr yyyy [--db datei]
+                    BuchhaltungCli sichern [--db datei]
+                    BuchhaltungCli wiederherstellen --aus verzeichnis [--db datei]""";
+
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+        int code;
+        try {
+            code = run(args, System.out);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            code = 2;
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Fehler: " + e.getMessage());
+            code = 1;
+        }
+        System.exit(code);
+    }
+
+    /**
+     * {@summary Führt einen Befehl aus.}
+     * @return Exit-Code
+     * @throws IllegalArgumentException bei unbekanntem Befehl oder ungültigen Optionen
+     */
+    static int run(String[] args, PrintStream stdout) throws IOException {
+        if (args.length == 0) throw new IllegalArgumentException("Kein Befehl angegeben.");
+        String cmd = args[0];
+        if (!List.of("saldo", "kategorien", "bericht", "liste", "suche", "abschluss", "sichern",
+                "wiederherstellen").contains(cmd)) {
+            throw new IllegalArgumentException("Unbekannter Befehl " + cmd);
+        }
+        LocalDate von = null, bis = null;
+        String kategorie = null, suche = null, db = null;
+        Path out = null, aus = null;
+        int limit = 20;
+        Integer jahr = null;
+        Pivot.Periode periode = Pivot.Periode.MONAT;
+        for (int i = 1; i < args.length; i++) {
+            String opt = args[i];
+            if (i + 1 == args.length) throw new IllegalArgumentException("Wert fehlt für " + opt);
+            String val = args[++i];
+            switch (opt) {
+                case "--von" -> von = date(val);
+                case "--bis" -> bis = date(val);
+                case "--kategorie" -> kategorie = kategorie(val);
+                case "--suche" -> suche = val;
+                case "--limit" -> limit = limit(val);
+                case "--jahr" -> jahr = jahr(val);
+                case "--periode" -> periode = periode(val);
+                case "--db" -> db = val;
+                case "--out" -> out = Path.of(val);
+                case "--aus" -> aus = Path.of(val);
+                default -> throw new IllegalArgumentException("Unbekannte Option " + opt);
+            }
+        }
+        if (von != null && bis != null && bis.isBefore(von)) {
+            throw new IllegalArgumentException("--bis liegt vor --von.");
+        }
+        EntryQuery q = EntryQuery.of(von, bis, kategorie, suche);
+        if (cmd.equals("suche") && q.suche() == null) throw new IllegalArgumentException("suche braucht --suche.");
+        if (cmd.equals("abschluss") && jahr == null) throw new IllegalArgumentException("abschluss braucht --jahr.");
+        if (cmd.equals("wiederherstellen") && aus == null) throw new IllegalArgumentException("wiederherstellen braucht --aus.");
+
+        if (db != null) DbLite.init(db);
+        else DbLite.init();
+        try {
+            switch (cmd) {
+                case "saldo" -> stdout.println(Money.format(DbLite.saldoCents(q), false));
+                case "kategorien" -> {
+                    List<DbLite.CategoryTotal> totals = DbLite.categoryTotals(q);
+                    for (DbLite.CategoryTotal t : totals) {
+                        stdout.println(t.kategorie() + ";" + t.anzahl() + ";" + Money.format(t.cents(), false));
+                    }
+                }
+                case "bericht" -> {
+                    Pivot.Table t = DbLite.pivot(q, periode);
+                    if (out == null) {
+                        bericht(t, stdout);
+                    } else {
+                        try (OutputStream os = Files.newOutputStream(out)) {
+                            bericht(t, os);
+                        }
+                    }
+                }
+                case "liste", "suche" -> {
+                    int n = limit;
+                    RowWriter rows = cmd.equals("suche")
+                            ? (query, sink) -> DbLite.searchRanked(query, n, sink)
+                            : DbLite::forEachEntry;
+                    if (out == null) {
+                        liste(q, rows, stdout);
+                    } else {
+                        try (OutputStream os = Files.newOutputStream(out)) {
+                            liste(q, rows, os);
+                        }
+                    }
+                }
+                case "abschluss" -> {
+                    DbLite.closeYear(jahr);
+                    stdout.println("Geschäftsjahr " + jahr + " abgeschlossen.");
+                }
+                case "sichern" -> stdout.println(DbLite.backup());
+                case "wiederherstellen" -> {
+                    DbLite.restore(aus);
+                    stdout.println("Wiederhergestellt aus " + aus + ".");
+                }
+                default -> throw new IllegalStateException(cmd);
+            }
+        } finally {
+            DbLite.shutdown();
+        }
+        return 0;
+    }
+
+    // Zeilenquelle: alle Treffer nach Datum oder die besten nach Relevanz
+    private interface RowWriter {
+        long write(EntryQuery q, DbLite.RowSink sink) throws IOException;
+    }
+
+    private static void liste(EntryQuery q, RowWriter rows, OutputStream os) throws IOException {
+        // dasselbe Format wie der Export der Oberfläche (siehe CsvExporter)
+        CsvExporter.Writer w = new CsvExporter.Writer(Channels.newChannel(os));
+        rows.write(q, (id, belegnr, day, kat, text, cents) -> w.row(belegnr, day, kat, text, cents));
+        w.flush();
+        os.flush();
+    }
+
+    private static void bericht(Pivot.Table t, OutputStream os) throws IOException {
+        Writer w = new BufferedWriter(new OutputStreamWriter(os, StandardCharsets.UTF_8), 1 << 16);
+        t.writeCsv(w);
+        w.flush();
+    }
+
+    private static LocalDate date(String s) {
+        try {
+            return LocalDate.parse(s);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Ungültiges Datum " + s);
+        }
+    }
+
+    private static int limit(String s) {
+        try {
+            int n = Integer.parseInt(s);
+            if (n > 0) return n;
+        } catch (NumberFormatException ignored) {
+            // unten gemeldet
+        }
+        throw new IllegalArgumentException("Ungültiges Limit " + s);
+    }
+
+    private static int jahr(String s) {
+        try {
+            int y = Integer.parseInt(s);
+            if (y >= 1900 && y < LocalDate.now().getYear()) return y;
+        } catch (NumberFormatException ignored) {
+            // unten gemeldet
+        }
+        throw new IllegalArgumentException("Ungültiges oder nicht abgelaufenes Jahr " + s);
+    }
+
+    private static Pivot.Periode periode(String s) {
+        try {
+            return Pivot.Periode.valueOf(s.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unbekannte Periode " + s);
+        }
+    }
+
+    private static String kategorie(String s) {
+        String k = s.toLowerCase(Locale.ROOT);
+        if (k.equals("einnahmen")) return "Einnahmen";
+        if (k.equals("ausgaben")) return "Ausgaben";
+        throw new IllegalArgumentException("Unbekannte Kategorie " + s);
+    }
+}
@@ -1,13 +1,19 @@
 import java.awt.*;
 import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 import com.github.lgooddatepicker.components.DatePicker;
 import com.github.lgooddatepicker.components.DatePickerSettings;
 import java.awt.event.ItemEvent;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import javax.swing.filechooser.FileNameExtensionFilter;
 import java.util.Locale;
+import java.util.logging.Logger;
 import java.time.LocalDate;
-import javax.swing.table.TableModel;
-import javax.swing.table.TableRowSorter;
-import javax.swing.RowFilter;
 import java.time.format.DateTimeFormatter;
 
 /**
@@ -27,46 +33,124 @@ public class BuchhaltungMainPage {
     private DatePicker vonDatePicker;
     private DatePicker bisDatePicker;
     private JButton neuerEintragBtn;
+    private JButton importierenBtn;
+    private JButton berichtBtn;
+    private JButton exportierenBtn;
+    private JTextField sucheTextF;
     private JTable eintraegeTable;
 
-    private TableRowSorter<TableModel> sorter;
+    private EntryTableModel model;
+    // Saldo-Index und Schreiben erst nach DbLite.initAsync
+    private boolean dbReady;
+    // zuletzt angezeigter Saldo in Cent, für den Schnappschuss
+    private Long shownSaldo;
+    // zuletzt verlassene Ansichten, damit der Wechsel zurück ohne Abfrage geht
+    private final ViewCache views = new ViewCache(Long.getLong("buchhaltung.viewCache.mib", 16) << 20);
+    // alle Filteränderungen einer Aktion ergeben eine Abfrage
+    private final FilterScheduler filters = new FilterScheduler(this::currentQuery, this::applyFilters);
+    // Suche erst starten, wenn die Eingabe kurz ruht
+    private final Timer searchDebounce = new Timer(SEARCH_DELAY_MS, e -> filters.request());
+
+    private static final int SEARCH_DELAY_MS = 250;
 
     private static final DateTimeFormatter DATE_FMT = DateTimeFormatter.ofPattern("yyyy-MM-dd");
 
-    private static final int COL_TYP = 1;
-    private static final int COL_DATUM = 2;
-    private static final int COL_BETRAG = 5;
+    private static final Logger LOG = Logger.getLogger("Buchhaltung.ui");
 
     /**
      * {@summary Initialisiert die Hauptseite, konfiguriert DatePicker, Listener und Sichteinstellungen.}
-     * Lädt anschließend die Einträge und passt die Tabellenansicht an.
+     * Liegt ein Schnappschuss der letzten Sitzung vor, zeigt die Seite ihn sofort mit Filter und
+     * Saldo an und gleicht ihn ab, sobald die Datenbank offen ist; sonst lädt sie die Einträge.
+     * Die DatePicker werden erst nach dem ersten Zeichnen eingerichtet. Aktionen, die schreiben
+     * oder rechnen, sind bis zum Öffnen der Datenbank gesperrt.
+     * @param warm Ansicht aus {@link WarmStart} oder {@code null}
+     * @param db   wird abgeschlossen, sobald {@link DbLite#initAsync()} fertig ist
      */
-    public BuchhaltungMainPage() {
-        configurePickers();
-        wireListeners();
+    public BuchhaltungMainPage(WarmStart.View warm, CompletableFuture<Void> db) {
         configureDropBox();
-        updateSaldo();
-        SwingUtilities.invokeLater(this::loadEntries);
+        if (warm != null) showWarmStart(warm);
+        wireListeners();
+        setActionsEnabled(false);
+        DbLite.addEntryListener(b -> SwingUtilities.invokeLater(() -> entryAdded(b)));
+        DbLite.addReloadListener(() -> SwingUtilities.invokeLater(this::loadEntries));
+        SwingUtilities.invokeLater(() -> configurePickers(warm == null ? null : warm.query()));
+        if (warm == null) SwingUtilities.invokeLater(this::loadEntries);
         SwingUtilities.invokeLater(this::tuneTable);
+        AsyncDb.onEdt(db, v -> dbReady(), ex ->
+                JOptionPane.showMessageDialog(rootPnl, "Datenbank konnte nicht geöffnet werden: " + ex.getMessage()));
     }
 
     /**
-     * {@summary Lädt die Einträge aus der Datenquelle in die Tabelle.}
-     * Zeigt bei Fehlern einen Dialog an, wendet Tabelleneinstellungen an
-     * und scrollt auf den letzten Eintrag.
+     * {@summary Zeigt die Ansicht der letzten Sitzung, bevor die Datenbank offen ist.}
+     * Filter und Suchtext werden gesetzt, bevor Listener hängen; die Daten der DatePicker setzt
+     * {@link #configurePickers}. Das Modell beginnt mit den gespeicherten Seiten und zählt im
+     * Hintergrund nach.
      */
-    public void loadEntries() {
-        try {
-            eintraegeTable.setModel(DbLite.tableModelAll());
-        } catch (RuntimeException ex) {
+    private void showWarmStart(WarmStart.View v) {
+        long t0 = System.nanoTime();
+        EntryQuery q = v.query();
+        saldoComboB.setSelectedItem(q.kategorie() != null ? q.kategorie() : "Alle");
+        if (q.suche() != null) sucheTextF.setText(q.suche());
+        filters.assume(q);
+        model = new EntryTableModel(q, v, () -> entriesReady(t0), ex -> {
+            entriesReady(t0);
             JOptionPane.showMessageDialog(rootPnl, "Konnte Einträge nicht laden: " + ex.getMessage());
-        }
-        tuneTable();
+        });
+        eintraegeTable.setModel(model);
+        if (v.saldo() != null) showSaldo(q, v.saldo());
+        // nach dem Layout wieder an die zuletzt oberste Zeile scrollen
+        SwingUtilities.invokeLater(() -> {
+            if (!(eintraegeTable.getParent() instanceof JViewport vp) || v.topRow() >= model.getRowCount()) return;
+            vp.setViewPosition(new Point(0, eintraegeTable.getCellRect(v.topRow(), 0, true).y));
+        });
+    }
 
-        sorter = new TableRowSorter<>(eintraegeTable.getModel());
-        eintraegeTable.setRowSorter(sorter);
-        applyFilters();
+    /**
+     * {@summary Gibt die Aktionen frei und rechnet den Saldo, sobald die Datenbank offen ist.}
+     */
+    private void dbReady() {
+        dbReady = true;
+        setActionsEnabled(true);
+        updateSaldo();
+    }
+
+    private void setActionsEnabled(boolean enabled) {
+        neuerEintragBtn.setEnabled(enabled);
+        importierenBtn.setEnabled(enabled);
+        berichtBtn.setEnabled(enabled);
+        exportierenBtn.setEnabled(enabled);
+    }
 
+    /**
+     * {@summary Legt die sichtbare Ansicht für den nächsten Start ab (siehe {@link WarmStart}).}
+     * Ist sie noch nicht vollständig geladen, bleibt der bisherige Schnappschuss bestehen.
+     */
+    public void writeWarmStart(Path file) {
+        if (model == null) return;
+        Rectangle r = eintraegeTable.getVisibleRect();
+        int top = Math.max(0, eintraegeTable.rowAtPoint(r.getLocation()));
+        int bottom = eintraegeTable.rowAtPoint(new Point(r.x, r.y + r.height - 1));
+        if (bottom < 0) bottom = model.getRowCount() - 1;
+        WarmStart.View v = model.view(top, bottom, shownSaldo);
+        if (v == null) return;
+        try {
+            WarmStart.write(file, v);
+        } catch (IOException e) {
+            // der nächste Start lädt dann eben ohne Schnappschuss
+            LOG.warning("Could not write " + file + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * {@summary Lädt die Einträge für die aktuellen Filter neu in die Tabelle.}
+     * Scrollt anschließend auf den letzten Eintrag.
+     */
+    public void loadEntries() {
+        // nach Massenänderungen gilt keine abgelegte Ansicht mehr
+        views.clear();
+        if (model != null) model.cancel();
+        model = null;
+        filters.applyNow();
         snapBottom(eintraegeTable);
     }
 
@@ -78,8 +162,14 @@ public class BuchhaltungMainPage {
         JTable t = eintraegeTable;
         t.setAutoResizeMode(JTable.AUTO_RESIZE_SUBSEQUENT_COLUMNS);
 
-        javax.swing.table.DefaultTableCellRenderer right = new javax.swing.table.DefaultTableCellRenderer();
-        right.setHorizontalAlignment(javax.swing.SwingConstants.RIGHT);
+        // das Modell liefert Primitive; formatiert wird erst hier, beim Zeichnen der Zelle
+        AmountCellRenderer right = new AmountCellRenderer();
+
+        javax.swing.table.DefaultTableCellRenderer date = new javax.swing.table.DefaultTableCellRenderer() {
+            @Override protected void setValue(Object v) {
+                setText(v instanceof Integer day ? LocalDate.ofEpochDay(day).format(DATE_FMT) : (v == null ? "" : v.toString()));
+            }
+        };
 
         var cm = t.getColumnModel();
 
@@ -92,6 +182,7 @@ public class BuchhaltungMainPage {
         cm.getColumn(1).setPreferredWidth(60);
 
         cm.getColumn(2).setPreferredWidth(200);
+        cm.getColumn(2).setCellRenderer(date);
 
         cm.getColumn(3).setPreferredWidth(170);
 
@@ -139,28 +230,25 @@ public class BuchhaltungMainPage {
             openEntryDialog();
         });
 
+        importierenBtn.addActionListener(e -> importCsv());
+
+        berichtBtn.addActionListener(e -> openReportDialog());
+
+        exportierenBtn.addActionListener(e -> exportCsv());
+
         saldoComboB.addItemListener(e -> {
-            if (e.getStateChange() == ItemEvent.SELECTED) updateSaldo();
+            if (e.getStateChange() == ItemEvent.SELECTED) filters.request();
         });
 
-        vonDatePicker.addDateChangeListener(e -> {
-            LocalDate from = e.getNewDate();
-            bisDatePicker.getSettings().setDateRangeLimits(from, null);
-            applyFilters();
-            LocalDate to = bisDatePicker.getDate();
-            if (to != null && from != null && to.isBefore(from)) {
-                bisDatePicker.setDate(from);
-            }
+        searchDebounce.setRepeats(false);
+        sucheTextF.getDocument().addDocumentListener(new DocumentListener() {
+            @Override public void insertUpdate(DocumentEvent e) { searchDebounce.restart(); }
+            @Override public void removeUpdate(DocumentEvent e) { searchDebounce.restart(); }
+            @Override public void changedUpdate(DocumentEvent e) { searchDebounce.restart(); }
         });
-
-        bisDatePicker.addDateChangeListener(e -> {
-            LocalDate to = e.getNewDate();
-            vonDatePicker.getSettings().setDateRangeLimits(null, to);
-            applyFilters();
-            LocalDate from = vonDatePicker.getDate();
-            if (to != null && from != null && from.isAfter(to)) {
-                vonDatePicker.setDate(to);
-            }
+        sucheTextF.addActionListener(e -> {
+            searchDebounce.stop();
+            filters.request();
         });
     }
 
@@ -180,15 +268,140 @@ public class BuchhaltungMainPage {
         dlg.setLocationRelativeTo(owner);
 
         dlg.setVisible(true);
-        loadEntries();
+    }
+
+    /**
+     * {@summary Öffnet den Bericht für den aktuellen Filter; die Hauptseite bleibt bedienbar.}
+     */
+    private void openReportDialog() {
+        BerichtPage form = new BerichtPage(currentQuery());
+
+        Window owner = SwingUtilities.getWindowAncestor(getRootPnl());
+
+        JDialog dlg = new JDialog(owner, "Bericht", Dialog.ModalityType.MODELESS);
+        dlg.setDefaultCloseOperation(WindowConstants.DISPOSE_ON_CLOSE);
+        dlg.setContentPane(form.getRootPnl());
+        dlg.pack();
+
+        dlg.setLocationRelativeTo(owner);
+
+        dlg.setVisible(true);
+    }
+
+    /**
+     * {@summary Importiert eine CSV-Datei im Hintergrund und zeigt den Fortschritt an.}
+     * Ein Abbruch behält die bereits gespeicherten Stapel; derselbe Import setzt später dort fort.
+     */
+    private void importCsv() {
+        JFileChooser fc = new JFileChooser();
+        fc.setFileFilter(new FileNameExtensionFilter("CSV-Dateien", "csv", "txt"));
+        if (fc.showOpenDialog(rootPnl) != JFileChooser.APPROVE_OPTION) return;
+        Path file = fc.getSelectedFile().toPath();
+
+        ProgressMonitor pm = new ProgressMonitor(rootPnl, "Importiere " + file.getFileName(), "", 0, 100);
+        pm.setMillisToPopup(0);
+        CsvImporter[] importer = new CsvImporter[1];
+        importer[0] = new CsvImporter(file, p -> SwingUtilities.invokeLater(() -> {
+            if (pm.isCanceled()) importer[0].cancel();
+            pm.setProgress(p.percent());
+            pm.setNote(p.importiert() + " Buchungen importiert");
+        }));
+
+        importierenBtn.setEnabled(false);
+        new SwingWorker<CsvImporter.Result, Void>() {
+            @Override
+            protected CsvImporter.Result doInBackground() throws Exception {
+                return importer[0].run();
+            }
+
+            @Override
+            protected void done() {
+                pm.close();
+                importierenBtn.setEnabled(true);
+                try {
+                    CsvImporter.Result r = get();
+                    StringBuilder msg = new StringBuilder()
+                            .append(r.progress().importiert()).append(" Buchungen importiert")
+                            .append(r.abgebrochen() ? " (abgebrochen)." : ".");
+                    if (r.progress().fehlerhaft() > 0) {
+                        msg.append("\n").append(r.progress().fehlerhaft()).append(" Zeilen übersprungen:");
+                        r.fehler().stream().limit(10).forEach(f -> msg.append("\n").append(f));
+                    }
+                    JOptionPane.showMessageDialog(rootPnl, msg.toString());
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException ex) {
+                    JOptionPane.showMessageDialog(rootPnl, "Import fehlgeschlagen: " + ex.getCause().getMessage()
+                            + "\nEin erneuter Import derselben Datei setzt nach dem letzten gespeicherten Stapel fort.");
+                }
+            }
+        }.execute();
+    }
+
+    /**
+     * {@summary Exportiert alle Buchungen des aktuellen Filters im Hintergrund als CSV und zeigt den Fortschritt an.}
+     * Ein Abbruch lässt eine bereits vorhandene Zieldatei unverändert.
+     */
+    private void exportCsv() {
+        EntryQuery q = currentQuery();
+        JFileChooser fc = new JFileChooser();
+        fc.setFileFilter(new FileNameExtensionFilter("CSV-Dateien", "csv"));
+        fc.setSelectedFile(new File("buchungen.csv"));
+        if (fc.showSaveDialog(rootPnl) != JFileChooser.APPROVE_OPTION) return;
+        Path file = fc.getSelectedFile().toPath();
+
+        ProgressMonitor pm = new ProgressMonitor(rootPnl, "Exportiere nach " + file.getFileName(), "", 0, 100);
+        pm.setMillisToPopup(0);
+        CsvExporter[] exporter = new CsvExporter[1];
+        exporter[0] = new CsvExporter(q, file, p -> SwingUtilities.invokeLater(() -> {
+            if (pm.isCanceled()) exporter[0].cancel();
+            pm.setProgress(p.percent());
+            pm.setNote(p.exportiert() + " von " + p.gesamt() + " Buchungen");
+        }));
+
+        exportierenBtn.setEnabled(false);
+        new SwingWorker<CsvExporter.Result, Void>() {
+            @Override
+            protected CsvExporter.Result doInBackground() throws Exception {
+                return exporter[0].run();
+            }
+
+            @Override
+            protected void done() {
+                pm.close();
+                exportierenBtn.setEnabled(true);
+                try {
+                    CsvExporter.Result r = get();
+                    JOptionPane.showMessageDialog(rootPnl, r.abgebrochen() ? "Export abgebrochen."
+                            : r.exportiert() + " Buchungen nach " + file.getFileName() + " exportiert.");
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException ex) {
+                    JOptionPane.showMessageDialog(rootPnl, "Export fehlgeschlagen: " + ex.getCause().getMessage());
+                }
+            }
+        }.execute();
+    }
+
+    /**
+     * {@summary Übernimmt eine gespeicherte Buchung als einzelne Zeile und passt den Saldo an.}
+     * @param b gerade gespeicherte Buchung
+     */
+    private void entryAdded(Buchung b) {
+        views.entryAdded(b);
+        if (model == null) return;
+        model.entryAdded(b);
+        updateSaldo();
     }
 
     /**
      * {@summary Konfiguriert beide DatePicker: }
      * Locale/Format, keine Tastatureingabe, gegenseitige
-     * Bereichslimits und Erzwingen von (von ≤ bis).
+     * Bereichslimits und Erzwingen von (von ≤ bis). Die Korrekturen lösen weitere
+     * Änderungen aus; gefiltert wird trotzdem nur einmal (siehe {@link FilterScheduler}).
+     * @param warm Filter aus dem Schnappschuss, dessen Zeitraum übernommen wird, oder {@code null}
      */
-    private void configurePickers() {
+    private void configurePickers(EntryQuery warm) {
         Locale deAT = Locale.forLanguageTag("de-AT");
 
         for (DatePicker dp : new DatePicker[]{ vonDatePicker, bisDatePicker }) {
@@ -198,6 +411,14 @@ public class BuchhaltungMainPage {
             s.setAllowKeyboardEditing(false);
         }
 
+        // Zeitraum der letzten Sitzung, bevor die Listener filtern
+        if (warm != null) {
+            vonDatePicker.setDate(warm.von());
+            bisDatePicker.setDate(warm.bis());
+            bisDatePicker.getSettings().setDateRangeLimits(warm.von(), null);
+            vonDatePicker.getSettings().setDateRangeLimits(null, warm.bis());
+        }
+
         vonDatePicker.addDateChangeListener(e -> {
             LocalDate from = e.getNewDate();
 
@@ -207,6 +428,7 @@ public class BuchhaltungMainPage {
             if (from != null && to != null && to.isBefore(from)) {
                 bisDatePicker.setDate(from);
             }
+            filters.request();
         });
 
         bisDatePicker.addDateChangeListener(e -> {
@@ -218,6 +440,7 @@ public class BuchhaltungMainPage {
             if (to != null && from != null && from.isAfter(to)) {
                 vonDatePicker.setDate(to);
             }
+            filters.request();
         });
     }
 
@@ -234,123 +457,90 @@ public class BuchhaltungMainPage {
 
     /**
      * {@summary Aktualisiert den Saldo-Text anhand der aktuellen Auswahl der Combo-Box.}
-     * Setzt je nach Modus "Einnahmen", "Ausgaben" oder "Alles" in das Saldo-Feld.
-     * !NUR DEMO - LOGIK MIT DB FEHLT NOCH!
+     * Die Summe kommt in exakten Cent aus dem Saldo-Index; bei "Einnahmen"
+     * und "Ausgaben" wird der Betrag der Summe angezeigt. Mit Suchbegriffen summiert
+     * die Datenbank die Treffer, dann wird im Hintergrund gerechnet und das Ergebnis im
+     * Modell gemerkt, bis eine passende Buchung dazukommt.
      */
     private void updateSaldo() {
-        if (eintraegeTable.getModel() == null) return;
-        String mode = (String) saldoComboB.getSelectedItem();
-        double sum = 0.0;
-
-        TableRowSorter<?> rs = (TableRowSorter<?>) eintraegeTable.getRowSorter();
-        int rowCount = eintraegeTable.getRowCount();
-
-        for (int v = 0; v < rowCount; v++) {
-            int m = (rs != null) ? eintraegeTable.convertRowIndexToModel(v) : v;
-            Object amtObj = eintraegeTable.getModel().getValueAt(m, COL_BETRAG);
-            double val = parseAmount(amtObj);
-            Object typObj = safeGet(eintraegeTable.getModel(), m, COL_TYP);
-            boolean isIncome = inferIncome(typObj, val);
-
-            switch (mode) {
-                case "Einnahmen":
-                    if (isIncome) sum += Math.abs(val);
-                    break;
-                case "Ausgaben":
-                    if (!isIncome) sum += Math.abs(val);
-                    break;
-                default: // Alle
-                    sum += val;
-            }
+        if (model == null || !dbReady) return;
+        long t0 = System.nanoTime();
+        EntryQuery q = model.getQuery();
+        if (q.suche() == null) {
+            showSaldo(q, DbLite.saldoCents(q));
+            Metrics.record("ui.updateSaldo", t0);
+            return;
+        }
+        Long known = model.knownSaldo();
+        if (known != null) {
+            showSaldo(q, known);
+            Metrics.record("ui.updateSaldo", t0);
+            return;
         }
+        EntryTableModel m = model;
+        int rows = m.getRowCount();
+        AsyncDb.onEdt(AsyncDb.supply(() -> DbLite.saldoCents(q)), cents -> {
+            if (model != m) return;   // Filter inzwischen geändert
+            if (m.getRowCount() == rows) m.rememberSaldo(cents);
+            showSaldo(q, cents);
+            Metrics.record("ui.updateSaldo", t0);
+        }, ex -> saldoTextF.setText("–"));
+    }
 
-        saldoTextF.setText(String.format(Locale.GERMANY, "%,.2f €", sum));
-        if (sum > 0) saldoTextF.setForeground(new Color(0, 128, 0));
-        else if (sum < 0) saldoTextF.setForeground(new Color(160, 0, 0));
+    private void showSaldo(EntryQuery q, long cents) {
+        shownSaldo = cents;
+        if (q.kategorie() != null) cents = Math.abs(cents);
+
+        saldoTextF.setText(Money.format(cents, true) + " €");
+        if (cents > 0) saldoTextF.setForeground(new Color(0, 128, 0));
+        else if (cents < 0) saldoTextF.setForeground(new Color(160, 0, 0));
         else saldoTextF.setForeground(UIManager.getColor("TextField.foreground"));
     }
 
     /**
-     * {@summary}
-     * Applies both date and type filters according to pickers and combo box.
-     * Also triggers saldo recomputation.
+     * {@summary Übersetzt Datum-, Typfilter und Suchtext in eine Datenbankabfrage.}
      */
-    private void applyFilters() {
-        if (eintraegeTable.getRowSorter() == null) return;
-
-        final LocalDate from = vonDatePicker.getDate();
-        final LocalDate to   = bisDatePicker.getDate();
-        final String mode = (String) saldoComboB.getSelectedItem();
-
-        RowFilter<TableModel, Object> filter = new RowFilter<>() {
-            @Override
-            public boolean include(Entry<? extends TableModel, ? extends Object> entry) {
-                // date check
-                Object dateVal = entry.getValue(COL_DATUM);
-                if (dateVal == null) return false;
-                LocalDate d = parseDateSafe(dateVal.toString().trim());
-                if (d == null) return false;
-                if (from != null && d.isBefore(from)) return false;
-                if (to   != null && d.isAfter(to))   return false;
-
-                // type check
-                Object typVal = entry.getValue(COL_TYP);
-                Object amtObj = entry.getValue(COL_BETRAG);
-                double val = parseAmount(amtObj);
-                boolean isIncome = inferIncome(typVal, val);
-
-                if ("Einnahmen".equals(mode)) return isIncome;
-                if ("Ausgaben".equals(mode))  return !isIncome;
-                return true; // Alle
-            }
-        };
-
-        ((TableRowSorter<?>) eintraegeTable.getRowSorter()).setRowFilter(filter);
-        updateSaldo();
-    }
-
-
-    private boolean inferIncome(Object typVal, double amount) {
-        if (typVal != null) {
-            String s = String.valueOf(typVal).toLowerCase(Locale.ROOT);
-            if (s.contains("einnah")) return true;
-            if (s.contains("ausgab")) return false;
-            if (s.equals("+") || s.equals("in") || s.equals("ein")) return true;
-            if (s.equals("-") || s.equals("out") || s.equals("aus")) return false;
-        }
-        // fallback by sign
-        return amount >= 0.0;
-    }
-
-    private Object safeGet(TableModel m, int row, int col) {
-        try { return m.getValueAt(row, col); } catch (Exception ex) { return null; }
+    private EntryQuery currentQuery() {
+        return EntryQuery.of(vonDatePicker.getDate(), bisDatePicker.getDate(),
+                (String) saldoComboB.getSelectedItem(), sucheTextF.getText());
     }
 
-    private double parseAmount(Object amtObj) {
-        if (amtObj == null) return 0.0;
-        String s = amtObj.toString().trim();
-        if (s.isEmpty()) return 0.0;
-        // keep digits, sign, separators
-        s = s.replaceAll("[^0-9,.-]", "");
-        // handle "1.234,56" -> "1234.56" and "1,234.56" -> "1234.56"
-        int lastComma = s.lastIndexOf(',');
-        int lastDot = s.lastIndexOf('.');
-        if (lastComma > lastDot) {
-            s = s.replace(".", "");
-            s = s.replace(",", ".");
-        } else {
-            s = s.replace(",", "");
+    /**
+     * {@summary Zeigt die Treffer einer Abfrage.}
+     * Gefiltert wird per Index in SQL, der Suchtext über den Volltextindex; die Tabelle erhält
+     * nur passende Zeilen.
+     * Die Abfrage läuft im Hintergrund, eine noch laufende Abfrage wird abgebrochen. Das
+     * bisherige Modell wandert in den {@link ViewCache}; liegt dort schon eines für den Filter,
+     * wird es ohne Abfrage wieder angezeigt.
+     * Berechnet anschließend den Saldo neu.
+     * @param q aktueller Filter aus {@link #currentQuery()}
+     */
+    private void applyFilters(EntryQuery q) {
+        long t0 = System.nanoTime();
+        if (model != null) views.put(model);
+        model = views.take(q);
+        boolean cached = model != null;
+        if (!cached) {
+            model = new EntryTableModel(q, () -> entriesReady(t0), ex -> {
+                entriesReady(t0);
+                JOptionPane.showMessageDialog(rootPnl, "Konnte Einträge nicht laden: " + ex.getMessage());
+            });
         }
-        try { return Double.parseDouble(s); } catch (Exception ex) { return 0.0; }
+        eintraegeTable.setModel(model);
+        if (cached) entriesReady(t0);
+        else eintraegeTable.setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+        tuneTable();
+        updateSaldo();
+        Metrics.record("ui.applyFilters", t0);
     }
 
-    private LocalDate parseDateSafe(String s) {
-        if (s == null || s.isEmpty()) return null;
-        try { return LocalDate.parse(s); }                               // yyyy-MM-dd
-        catch (Exception ignored) {}
-        try { return LocalDate.parse(s, DATE_FMT); }
-        catch (Exception ignored) {}
-        return null;
+    /**
+     * {@summary Beendet die Ladeanzeige, sobald das aktuelle Modell seine Zeilenanzahl kennt.}
+     * @param started Beginn von {@link #applyFilters(EntryQuery)} für die Messung {@code ui.loadEntries}
+     */
+    private void entriesReady(long started) {
+        eintraegeTable.setCursor(Cursor.getDefaultCursor());
+        Metrics.record("ui.loadEntries", started);
     }
 
 
@@ -0,0 +1,28 @@
+import java.time.LocalDate;
+
+/**
+ * {@summary Eine gespeicherte Buchung, wie sie nach dem INSERT an Listener gemeldet wird.}
+ *
+ * @param id           von der Datenbank vergebene ID
+ * @param belegnr      Belegnummer
+ * @param datum        Buchungsdatum
+ * @param kategorie    "Einnahmen" oder "Ausgaben"
+ * @param beschreibung freier Text
+ * @param betragCents  Betrag in Cent, Ausgaben negativ
+ */
+public record Buchung(long id, String belegnr, LocalDate datum, String kategorie,
+                      String beschreibung, long betragCents) {
+
+    /**
+     * {@summary Baut eine noch nicht gespeicherte Buchung (ID 0) aus Eingabewerten.}
+     * Gleiche Regeln wie im Eingabedialog: leere Kategorie wird zu "Einnahmen", der Betrag
+     * wird bei "Ausgaben" negativ gespeichert.
+     * @param betragCents Betrag in Cent, z. B. aus {@link Money#parse}
+     */
+    public static Buchung entwurf(String belegnr, LocalDate datum, String kategorie,
+                                  String beschreibung, long betragCents) {
+        String kat = (kategorie == null || kategorie.isBlank()) ? "Einnahmen" : kategorie;
+        long cents = "Ausgaben".equalsIgnoreCase(kat) ? -Math.abs(betragCents) : betragCents;
+        return new Buchung(0, belegnr, datum, kat, beschreibung, cents);
+    }
+}
@@ -0,0 +1,188 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.function.Consumer;
+
+/**
+ * {@summary Exportiert die Buchungen eines Filters als CSV, mit konstantem Speicherbedarf.}
+ * Die Zeilen kommen in Journalreihenfolge direkt vom Cursor ({@link DbLite#forEachEntry}) und
+ * werden ohne Zwischenobjekte als UTF-8 in einen festen Puffer kodiert, der blockweise in einen
+ * {@link FileChannel} geschrieben wird. Das Format ist das des {@link CsvImporter} ohne Kopfzeile
+ * und dasselbe wie {@code BuchhaltungCli liste}; gleiche Daten ergeben also byteweise dieselbe
+ * Datei, egal wie groß. Geschrieben wird in eine temporäre Datei, die erst am Ende die Zieldatei
+ * ersetzt; nach einem Abbruch oder Fehler bleibt eine vorhandene Zieldatei unverändert.
+ */
+public class CsvExporter {
+
+    /**
+     * {@summary Zwischenstand des Exports.}
+     * @param exportiert bisher geschriebene Buchungen
+     * @param gesamt     Treffer des Filters beim Start (für die Fortschrittsanzeige)
+     */
+    public record Progress(long exportiert, long gesamt) {
+        public int percent() {
+            return gesamt == 0 ? 100 : (int) Math.min(100, exportiert * 100 / gesamt);
+        }
+    }
+
+    /** {@summary Ergebnis eines Exports.} */
+    public record Result(long exportiert, boolean abgebrochen) {}
+
+    private static final int PROGRESS_EVERY = 10_000;
+
+    private final EntryQuery query;
+    private final Path file;
+    private final Consumer<Progress> onProgress;
+    private volatile boolean cancelled;
+
+    /**
+     * @param query      Filter; Suchbegriffe werden berücksichtigt
+     * @param file       Zieldatei (UTF-8)
+     * @param onProgress wird alle 10 000 Buchungen und am Ende aufgerufen, im Thread des Exports
+     */
+    public CsvExporter(EntryQuery query, Path file, Consumer<Progress> onProgress) {
+        this.query = query;
+        this.file = file;
+        this.onProgress = onProgress;
+    }
+
+    /** Bricht den Export nach der laufenden Zeile ab. */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * {@summary Führt den Export aus und blockiert bis zum Ende.}
+     * @throws IOException wenn die Datei nicht geschrieben werden kann
+     */
+    public Result run() throws IOException {
+        long t0 = System.nanoTime();
+        long total = DbLite.countEntries(query).rows();
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        long[] n = {0};
+        boolean done = false;
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            Writer w = new Writer(ch);
+            DbLite.forEachEntry(query, (id, belegnr, day, kat, text, cents) -> {
+                if (cancelled) throw new Cancelled();
+                w.row(belegnr, day, kat, text, cents);
+                if (++n[0] % PROGRESS_EVERY == 0) onProgress.accept(new Progress(n[0], total));
+            });
+            w.flush();
+            done = true;
+        } catch (Cancelled e) {
+            // unten als abgebrochen gemeldet
+        } finally {
+            if (!done) Files.deleteIfExists(tmp);
+        }
+        if (!done) return new Result(n[0], true);
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        onProgress.accept(new Progress(n[0], Math.max(total, n[0])));
+        Metrics.record("csv.export", t0);
+        return new Result(n[0], false);
+    }
+
+    // stops the cursor from inside the row callback
+    private static final class Cancelled extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public synchronized Throwable fillInStackTrace() {
+            return this;
+        }
+    }
+
+    /**
+     * {@summary Kodiert Zeilen im Exportformat in einen festen Puffer und schreibt ihn blockweise.}
+     * Felder mit {@code ;}, {@code "}, {@code \n} oder {@code \r} stehen in Anführungszeichen
+     * ({@code "} verdoppelt), wie der {@link CsvImporter} sie auch über Zeilenumbrüche hinweg liest.
+     */
+    static final class Writer {
+        private final WritableByteChannel ch;
+        private final ByteBuffer buf = ByteBuffer.allocateDirect(1 << 16);
+        private final char[] amount = new char[Money.MAX_CHARS];
+        private final byte[] date = new byte[10];
+        private int dateDay = Integer.MIN_VALUE;
+
+        Writer(WritableByteChannel ch) {
+            this.ch = ch;
+        }
+
+        void row(String belegnr, int epochDay, String kategorie, String beschreibung, long cents) throws IOException {
+            field(belegnr);
+            put(';');
+            ensure(date.length);
+            buf.put(date(epochDay));
+            put(';');
+            field(kategorie);
+            put(';');
+            field(beschreibung);
+            put(';');
+            int len = Money.formatTo(cents, false, amount);
+            ensure(len + 1);
+            for (int i = 0; i < len; i++) buf.put((byte) amount[i]);
+            buf.put((byte) '\n');
+        }
+
+        void flush() throws IOException {
+            buf.flip();
+            while (buf.hasRemaining()) ch.write(buf);
+            buf.clear();
+        }
+
+        // rows arrive sorted by day, so the last date is nearly always the next one
+        private byte[] date(int epochDay) {
+            if (epochDay != dateDay) {
+                String s = LocalDate.ofEpochDay(epochDay).toString();
+                for (int i = 0; i < date.length; i++) date[i] = (byte) s.charAt(i);
+                dateDay = epochDay;
+            }
+            return date;
+        }
+
+        private void field(String s) throws IOException {
+            if (s == null) return;
+            boolean quote = false;
+            for (int i = 0; i < s.length() && !quote; i++) {
+                char c = s.charAt(i);
+                quote = c == ';' || c == '"' || c == '\n' || c == '\r';
+            }
+            if (quote) put('"');
+            for (int i = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+                if (c == '"' && quote) put('"');
+                ensure(4);
+                if (c < 0x80) {
+                    buf.put((byte) c);
+                } else if (c < 0x800) {
+                    buf.put((byte) (0xC0 | c >> 6)).put((byte) (0x80 | c & 0x3F));
+                } else if (Character.isHighSurrogate(c) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1))) {
+                    int cp = Character.toCodePoint(c, s.charAt(++i));
+                    buf.put((byte) (0xF0 | cp >> 18)).put((byte) (0x80 | cp >> 12 & 0x3F))
+                            .put((byte) (0x80 | cp >> 6 & 0x3F)).put((byte) (0x80 | cp & 0x3F));
+                } else if (Character.isSurrogate(c)) {
+                    buf.put((byte) '?');   // like String.getBytes for an unpaired surrogate
+                } else {
+                    buf.put((byte) (0xE0 | c >> 12)).put((byte) (0x80 | c >> 6 & 0x3F)).put((byte) (0x80 | c & 0x3F));
+                }
+            }
+            if (quote) put('"');
+        }
+
+        private void put(char ascii) throws IOException {
+            ensure(1);
+            buf.put((byte) ascii);
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (buf.remaining() < bytes) flush();
+        }
+    }
+}
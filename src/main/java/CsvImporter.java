@@ -0,0 +1,279 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * {@summary Importiert Buchungen aus einer CSV-Datei (z. B. Kontoauszug) in großen Transaktionen.}
+ * Format pro Zeile: {@code belegnr;datum;kategorie;beschreibung;betrag} mit Datum {@code yyyy-MM-dd}
+ * und Betrag im deutschen Format ({@code 1234,56}); Felder dürfen in Anführungszeichen stehen
+ * und dann auch Zeilenumbrüche enthalten (gelesen als {@code \n}).
+ * Als Kategorie gelten wie im Eingabedialog nur "Einnahmen" und "Ausgaben" (Groß-/Kleinschreibung
+ * beliebig); ist sie leer, entscheidet das Vorzeichen des Betrags.
+ * Eine Kopfzeile wird übersprungen. Ein Parser-Thread liest und prüft die Zeilen, der aufrufende
+ * Thread schreibt sie stapelweise über {@link DbLite#insertBatch}; zwischen beiden liegt eine
+ * begrenzte Warteschlange, der Speicherbedarf bleibt daher konstant.
+ * Nach einem Abbruch oder Fehler setzt ein erneuter Import derselben Datei nach dem letzten
+ * bestätigten Stapel fort.
+ */
+public class CsvImporter {
+
+    /**
+     * {@summary Zwischenstand des Imports.}
+     *
+     * @param zeilen       gelesene Zeilen inklusive übersprungener
+     * @param importiert   in diesem Lauf gespeicherte Buchungen
+     * @param fehlerhaft   wegen ungültiger Werte übersprungene Zeilen
+     * @param bytesGelesen bisher gelesene Bytes der Datei
+     * @param bytesGesamt  Dateigröße
+     */
+    public record Progress(long zeilen, long importiert, long fehlerhaft, long bytesGelesen, long bytesGesamt) {
+        public int percent() {
+            return bytesGesamt == 0 ? 100 : (int) (bytesGelesen * 100 / bytesGesamt);
+        }
+    }
+
+    /**
+     * {@summary Ergebnis eines Imports.}
+     * @param fehler die ersten Fehlermeldungen mit Zeilennummer
+     */
+    public record Result(Progress progress, List<String> fehler, boolean abgebrochen) {}
+
+    private static final int BATCH = 10_000;
+    private static final int MAX_ERRORS = 100;
+    // a quote that is never closed must not pull the rest of the file into one record
+    private static final int MAX_RECORD = 1 << 20;
+    private static final DateTimeFormatter DATE_FMT = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+
+    private final Path file;
+    private final Consumer<Progress> onProgress;
+    private volatile boolean cancelled;
+
+    /**
+     * @param file       CSV-Datei (UTF-8)
+     * @param onProgress wird nach jedem gespeicherten Stapel aufgerufen, im Thread des Imports
+     */
+    public CsvImporter(Path file, Consumer<Progress> onProgress) {
+        this.file = file;
+        this.onProgress = onProgress;
+    }
+
+    /** Bricht den Import nach dem laufenden Stapel ab. */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * {@summary Führt den Import aus und blockiert bis zum Ende.}
+     * @throws IOException wenn die Datei nicht gelesen werden kann
+     */
+    public Result run() throws IOException {
+        long size = Files.size(file);
+        String key = file.toAbsolutePath().normalize() + "|" + size + "|" + Files.getLastModifiedTime(file).toMillis();
+        long resumeAfter = DbLite.importPosition(key);
+
+        BlockingQueue<Batch> queue = new ArrayBlockingQueue<>(4);
+        Parser parser = new Parser(resumeAfter, size, queue);
+        Thread t = new Thread(parser, "csv-parser");
+        t.setDaemon(true);
+        t.start();
+
+        long imported = 0;
+        Batch last = null;
+        try {
+            while (true) {
+                Batch b = queue.take();
+                if (b.error != null) throw b.error;
+                // Buchungen und Fortschritt in derselben Transaktion, damit der Neustart exakt passt
+                DbLite.insertBatch(b.rows, key, b.line);
+                imported += b.rows.size();
+                last = b;
+                onProgress.accept(new Progress(b.line, imported, b.invalid, b.bytes, size));
+                if (b.end || cancelled) break;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            cancelled = true;
+        } finally {
+            parser.stop = true;
+            t.interrupt();
+            if (imported > 0) DbLite.fireReload();
+        }
+        Progress p = last == null ? new Progress(resumeAfter, 0, 0, 0, size)
+                : new Progress(last.line, imported, last.invalid, last.bytes, size);
+        return new Result(p, List.copyOf(parser.errors), cancelled);
+    }
+
+    // ein Stapel geprüfter Zeilen bis einschließlich Zeile 'line'
+    private static final class Batch {
+        final List<Buchung> rows;
+        final long line, invalid, bytes;
+        final boolean end;
+        final IOException error;
+
+        Batch(List<Buchung> rows, long line, long invalid, long bytes, boolean end, IOException error) {
+            this.rows = rows;
+            this.line = line;
+            this.invalid = invalid;
+            this.bytes = bytes;
+            this.end = end;
+            this.error = error;
+        }
+    }
+
+    /**
+     * {@summary Liest die Datei zeilenweise, prüft die Werte und reicht Stapel weiter.}
+     */
+    private final class Parser implements Runnable {
+        private final long resumeAfter;
+        private final long size;
+        private final BlockingQueue<Batch> queue;
+        private final List<String> errors = new CopyOnWriteArrayList<>();
+        volatile boolean stop;
+
+        Parser(long resumeAfter, long size, BlockingQueue<Batch> queue) {
+            this.resumeAfter = resumeAfter;
+            this.size = size;
+            this.queue = queue;
+        }
+
+        @Override
+        public void run() {
+            long line = 0, invalid = 0;
+            CountingInputStream in = null;
+            try {
+                in = new CountingInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16));
+                BufferedReader r = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 1 << 16);
+                List<Buchung> rows = new ArrayList<>(BATCH);
+                String text;
+                while (!stop && (text = r.readLine()) != null) {
+                    long start = ++line;
+                    // ein Feld in Anführungszeichen darf Zeilenumbrüche enthalten
+                    if (openQuote(text, false)) {
+                        StringBuilder record = new StringBuilder(text);
+                        boolean open = true;
+                        String next;
+                        while (open && record.length() < MAX_RECORD && (next = r.readLine()) != null) {
+                            line++;
+                            record.append('\n').append(next);
+                            open = openQuote(next, true);
+                        }
+                        text = record.toString();
+                    }
+                    if (line <= resumeAfter || text.isBlank()) continue;
+                    try {
+                        rows.add(parse(text));
+                    } catch (IllegalArgumentException | ArithmeticException ex) {
+                        if (start == 1 && text.toLowerCase(Locale.ROOT).contains("datum")) continue; // Kopfzeile
+                        invalid++;
+                        if (errors.size() < MAX_ERRORS) errors.add("Zeile " + start + ": " + ex.getMessage());
+                    }
+                    if (rows.size() == BATCH) {
+                        queue.put(new Batch(rows, line, invalid, in.count, false, null));
+                        rows = new ArrayList<>(BATCH);
+                    }
+                }
+                queue.put(new Batch(rows, line, invalid, stop ? in.count : size, true, null));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (IOException e) {
+                try {
+                    queue.put(new Batch(List.of(), line, invalid, 0, true, e));
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                }
+            } finally {
+                if (in != null) try { in.close(); } catch (IOException ignored) {}
+            }
+        }
+
+        private Buchung parse(String text) {
+            List<String> f = split(text);
+            if (f.size() < 5) throw new IllegalArgumentException("erwartet 5 Felder, gefunden " + f.size());
+            LocalDate d;
+            try {
+                d = LocalDate.parse(f.get(1).trim(), DATE_FMT);
+            } catch (DateTimeParseException ex) {
+                throw new IllegalArgumentException("ungültiges Datum '" + f.get(1) + "'");
+            }
+            // sonst würde der ganze Stapel beim Schreiben zurückgerollt
+            if (DbLite.isClosed(d)) throw new IllegalArgumentException("Geschäftsjahr " + d.getYear() + " ist abgeschlossen");
+            long cents = Money.parse(f.get(4).trim());
+            String kat = f.get(2).trim();
+            // Kontoauszüge ohne Kategorie: Vorzeichen entscheidet; sonst nur die Werte des Dialogs
+            if (kat.isEmpty()) kat = cents < 0 ? "Ausgaben" : "Einnahmen";
+            else if (kat.equalsIgnoreCase("Einnahmen")) kat = "Einnahmen";
+            else if (kat.equalsIgnoreCase("Ausgaben")) kat = "Ausgaben";
+            else throw new IllegalArgumentException("unbekannte Kategorie '" + kat + "'");
+            // das Vorzeichen folgt der Kategorie, siehe Buchung.entwurf
+            return Buchung.entwurf(f.get(0).trim(), d, kat, f.get(3).trim(), Math.abs(cents));
+        }
+    }
+
+    // quote state at the end of line, given the state at its start ("" toggles twice)
+    private static boolean openQuote(String line, boolean open) {
+        for (int i = 0; i < line.length(); i++) if (line.charAt(i) == '"') open = !open;
+        return open;
+    }
+
+    /**
+     * {@summary Zerlegt eine Zeile an ';' und beachtet Anführungszeichen ("" = ").}
+     */
+    static List<String> split(String line) {
+        List<String> out = new ArrayList<>(5);
+        StringBuilder cur = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char ch = line.charAt(i);
+            if (quoted) {
+                if (ch == '"') {
+                    if (i + 1 < line.length() && line.charAt(i + 1) == '"') { cur.append('"'); i++; }
+                    else quoted = false;
+                } else {
+                    cur.append(ch);
+                }
+            } else if (ch == '"') {
+                quoted = true;
+            } else if (ch == ';') {
+                out.add(cur.toString());
+                cur.setLength(0);
+            } else {
+                cur.append(ch);
+            }
+        }
+        out.add(cur.toString());
+        return out;
+    }
+
+    private static final class CountingInputStream extends FilterInputStream {
+        volatile long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) count++;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) count += n;
+            return n;
+        }
+    }
+}
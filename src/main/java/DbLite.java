@@ -1,89 +1,860 @@
-import javax.swing.table.DefaultTableModel;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.sql.*;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 public final class DbLite {
-    private static final String URL = "jdbc:sqlite:app.db"; // DB file next to your JAR
+    // DB file next to your JAR; -Dbuchhaltung.db=<file> selects another one
+    private static final String DEFAULT_FILE = System.getProperty("buchhaltung.db", "app.db");
+
+    // single-row inserts from all threads are group-committed by one writer thread
+    private static final int INGEST_CAPACITY = Integer.getInteger("buchhaltung.ingest.capacity", 4096);
+    private static final int INGEST_BATCH = Integer.getInteger("buchhaltung.ingest.batch", 256);
+    private static final long INGEST_LATENCY_MICROS = Long.getLong("buchhaltung.ingest.maxLatencyMicros", 500);
+
+    // -Dbuchhaltung.journal=true: save() confirms once the entry is in the memory-mapped journal
+    private static final boolean JOURNAL = Boolean.getBoolean("buchhaltung.journal");
+    // import_state row holding the last journal record applied, written with the rows
+    private static final String JOURNAL_KEY = "journal";
+
+    // online backups: directory (default backup/ next to the DB), how many are kept, pause between copy steps
+    private static final String BACKUP_DIR = System.getProperty("buchhaltung.backup.dir");
+    private static final int BACKUP_KEEP = Integer.getInteger("buchhaltung.backup.keep", 7);
+    private static final long BACKUP_PAUSE_MICROS = Long.getLong("buchhaltung.backup.pauseMicros", 1000);
+
+    private static final Logger LOG = Logger.getLogger("Buchhaltung.db");
+
+    private static DbPool pool;
+    private static IngestQueue ingest;
+    private static Partitions partitions;
+    private static Backup backups;
+    private static Journal journal;
+    private static final SaldoIndex saldo = new SaldoIndex();
+    private static final List<Consumer<Buchung>> listeners = new CopyOnWriteArrayList<>();
+    private static final List<Runnable> reloadListeners = new CopyOnWriteArrayList<>();
+    // set by initAsync until init has finished
+    private static volatile CompletableFuture<Void> opening;
 
     private DbLite() {}
 
-    // call once at startup
-    public static void init() {
-        try (Connection c = DriverManager.getConnection(URL);
-             Statement st = c.createStatement()) {
-            st.execute("""
-                CREATE TABLE IF NOT EXISTS entry(
-                  id INTEGER PRIMARY KEY AUTOINCREMENT,
-                  belegnr TEXT NOT NULL,
-                  datum TEXT NOT NULL,
-                  kategorie TEXT NOT NULL,
-                  beschreibung TEXT,
-                  betrag_cents INTEGER NOT NULL
-                )
-            """);
-            st.execute("CREATE INDEX IF NOT EXISTS idx_entry_date ON entry(datum)");
+    private static DbPool pool() throws SQLException {
+        awaitOpening();
+        synchronized (DbLite.class) {
+            if (pool == null) throw new SQLException("DB not initialized, call DbLite.init() first");
+            return pool;
+        }
+    }
+
+    private static IngestQueue ingest() {
+        try {
+            awaitOpening();
+        } catch (SQLException e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+        synchronized (DbLite.class) {
+            if (ingest == null) throw new IllegalStateException("DB not initialized, call DbLite.init() first");
+            return ingest;
+        }
+    }
+
+    private static Partitions partitions() {
+        awaitReady();
+        return partitions;
+    }
+
+    private static void awaitReady() {
+        try {
+            awaitOpening();
         } catch (SQLException e) {
+            throw new RuntimeException("Query failed: " + e.getMessage(), e);
+        }
+    }
+
+    // while initAsync runs, calls from other threads wait here; init itself holds the lock and passes
+    private static void awaitOpening() throws SQLException {
+        CompletableFuture<Void> o = opening;
+        if (o == null || o.isDone() || Thread.holdsLock(DbLite.class)) return;
+        try {
+            o.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for the database", e);
+        } catch (ExecutionException e) {
+            throw new SQLException(e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    // call once at startup
+    public static synchronized void init() {
+        init(DEFAULT_FILE);
+    }
+
+    // like init(), but opens the database on a background thread and returns at once, so the UI can
+    // show before the schema check and the saldo index are done; DB calls made meanwhile wait for it
+    public static synchronized CompletableFuture<Void> initAsync() {
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        opening = done;
+        Thread t = new Thread(() -> {
+            try {
+                init();
+                done.complete(null);
+            } catch (RuntimeException e) {
+                done.completeExceptionally(e);
+            }
+        }, "db-init");
+        t.setDaemon(true);
+        t.start();
+        return done;
+    }
+
+    // the file init() opens
+    public static String defaultFile() {
+        return DEFAULT_FILE;
+    }
+
+    // same as init(), but on the given database file (created if missing); migrates older schemas
+    public static synchronized void init(String file) {
+        try {
+            if (pool == null) pool = new DbPool("jdbc:sqlite:" + file);
+            if (ingest == null) ingest = new IngestQueue(INGEST_CAPACITY, INGEST_BATCH, INGEST_LATENCY_MICROS, DbLite::writeGroup);
+            Partitions parts = new Partitions(Path.of(file));
+            pool.write("db.init", c -> {
+                Schema.migrate(c.connection());
+                parts.load(c.connection());
+                return null;
+            });
+            partitions = parts;
+            Path db = Path.of(file).toAbsolutePath();
+            backups = new Backup(db, BACKUP_DIR != null ? Path.of(BACKUP_DIR) : db.resolveSibling("backup"),
+                    BACKUP_KEEP, BACKUP_PAUSE_MICROS);
+            loadSaldo();
+            openJournal(Path.of(file + ".journal"));
+        } catch (SQLException | IOException e) {
             throw new RuntimeException("DB init failed: " + e.getMessage(), e);
         }
     }
 
-    // write
-    public static void insert(String belegnr, LocalDate datum, String kategorie, String beschreibung, int betragCents) {
+    // crash recovery: entries confirmed by the journal but not yet written are applied before init returns,
+    // also when the journal has been switched off since
+    private static void openJournal(Path dir) throws SQLException, IOException {
+        if (journal != null || !JOURNAL && !Files.isDirectory(dir)) return;
+        Journal j = new Journal(dir, importPosition(JOURNAL_KEY), INGEST_BATCH,
+                (rows, seq) -> writeGroup(rows, JOURNAL_KEY, seq));
+        j.recover();
+        if (JOURNAL) {
+            j.start();
+            journal = j;
+            return;
+        }
+        j.close();
+        try {
+            Files.deleteIfExists(dir);
+        } catch (IOException e) {
+            LOG.fine("Journal directory " + dir + " kept: " + e);
+        }
+    }
+
+    private static void loadSaldo() throws SQLException {
+        saldo.clear();
+        pool().read("db.loadSaldo", c -> {
+            try (ResultSet rs = c.prepare("SELECT kategorie, tag, summe_cents FROM entry_rollup").executeQuery()) {
+                while (rs.next()) saldo.add(LedgerPage.code(rs.getString(1)), rs.getLong(2), rs.getLong(3));
+            }
+            return null;
+        });
+    }
+
+    // call once on exit: closes the pooled connections and checkpoints the WAL
+    public static void shutdown() {
+        Journal j;
+        synchronized (DbLite.class) {
+            if (pool == null) return;
+            j = journal;
+            journal = null;
+        }
+        // journaled and pending inserts are written first; the journal thread needs pool() for that
+        if (j != null) j.close();
+        synchronized (DbLite.class) {
+            if (pool == null) return;
+            ingest.close();
+            ingest = null;
+            pool.close();
+            pool = null;
+        }
+    }
+
+    // listeners are called on the writing thread after the commit, in commit order
+    public static void addEntryListener(Consumer<Buchung> l) {
+        listeners.add(l);
+    }
+
+    public static void removeEntryListener(Consumer<Buchung> l) {
+        listeners.remove(l);
+    }
+
+    // called after bulk writes that are not announced row by row
+    public static void addReloadListener(Runnable l) {
+        reloadListeners.add(l);
+    }
+
+    public static void fireReload() {
+        for (Runnable l : reloadListeners) l.run();
+    }
+
+    // write -> generated id; blocks until the group holding this row is committed
+    public static long insert(String belegnr, LocalDate datum, String kategorie, String beschreibung, long betragCents) {
+        try {
+            return submit(belegnr, datum, kategorie, beschreibung, betragCents).join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException r) throw r;
+            throw new RuntimeException("Insert failed: " + cause.getMessage(), cause);
+        }
+    }
+
+    // write, asynchronous -> generated id once committed; blocks only while the ingest queue is full
+    public static CompletableFuture<Long> submit(String belegnr, LocalDate datum, String kategorie,
+                                                 String beschreibung, long betragCents) {
+        return ingest().submit(new Buchung(0, belegnr, datum, kategorie, beschreibung, betragCents));
+    }
+
+    // write -> completes once the entry is durable. With -Dbuchhaltung.journal=true that is right after the
+    // journal append (microseconds); the row is written shortly after on the journal thread and announced to
+    // the entry listeners then. Otherwise it completes with the commit, like submit.
+    public static CompletableFuture<Void> save(String belegnr, LocalDate datum, String kategorie,
+                                               String beschreibung, long betragCents) {
+        Journal j = journal();
+        if (j == null) return submit(belegnr, datum, kategorie, beschreibung, betragCents).thenApply(id -> null);
+        try {
+            // rejected now, the journal thread could no longer report it
+            checkOpen(datum);
+            j.append(new Buchung(0, belegnr, datum, kategorie, beschreibung, betragCents));
+            return CompletableFuture.completedFuture(null);
+        } catch (SQLException | IOException | RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private static Journal journal() {
+        awaitReady();
+        synchronized (DbLite.class) {
+            return journal;
+        }
+    }
+
+    // one transaction for a group of queued inserts, called on the ingest thread
+    private static long[] writeGroup(List<Buchung> rows) throws SQLException {
+        return writeGroup(rows, null, 0);
+    }
+
+    // same, and stores position under sourceKey in the same transaction (see insertBatch)
+    private static long[] writeGroup(List<Buchung> rows, String sourceKey, long position) throws SQLException {
+        String sql = "INSERT INTO entry(belegnr,datum,kategorie,beschreibung,betrag_cents) VALUES(?,?,?,?,?) RETURNING id";
+        String state = "INSERT INTO import_state(quelle, zeile) VALUES(?,?) "
+                + "ON CONFLICT(quelle) DO UPDATE SET zeile = excluded.zeile";
+        return pool().write(sourceKey == null ? "db.insert" : "db.journal.write", c -> {
+            Connection con = c.connection();
+            long[] ids = new long[rows.size()];
+            con.setAutoCommit(false);
+            try {
+                PreparedStatement ps = c.prepare(sql);
+                for (int i = 0; i < ids.length; i++) {
+                    Buchung b = rows.get(i);
+                    checkOpen(b.datum());
+                    ps.setString(1, b.belegnr());
+                    ps.setLong(2, b.datum().toEpochDay());
+                    ps.setString(3, b.kategorie());
+                    ps.setString(4, b.beschreibung());
+                    ps.setLong(5, b.betragCents());
+                    try (ResultSet rs = ps.executeQuery()) {
+                        rs.next();
+                        ids[i] = rs.getLong(1);
+                    }
+                }
+                if (sourceKey != null) {
+                    PreparedStatement st = c.prepare(state);
+                    st.setString(1, sourceKey);
+                    st.setLong(2, position);
+                    st.executeUpdate();
+                }
+                con.commit();
+            } catch (SQLException | RuntimeException e) {
+                con.rollback();
+                throw e;
+            } finally {
+                con.setAutoCommit(true);
+            }
+            for (int i = 0; i < ids.length; i++) {
+                Buchung b = rows.get(i);
+                saldo.add(LedgerPage.code(b.kategorie()), b.datum().toEpochDay(), b.betragCents());
+                // still under the write lock, so listeners see inserts in id order
+                Buchung saved = new Buchung(ids[i], b.belegnr(), b.datum(), b.kategorie(), b.beschreibung(), b.betragCents());
+                for (Consumer<Buchung> l : listeners) l.accept(saved);
+            }
+            return ids;
+        });
+    }
+
+    // write -> many rows in one transaction; ids of the given Buchungen are ignored.
+    // If importKey is set, position is stored with the rows, so a failed import resumes after the last commit.
+    // Listeners are not called; callers announce the change with fireReload().
+    public static void insertBatch(List<Buchung> rows, String importKey, long position) {
         String sql = "INSERT INTO entry(belegnr,datum,kategorie,beschreibung,betrag_cents) VALUES(?,?,?,?,?)";
-        try (Connection c = DriverManager.getConnection(URL);
-             PreparedStatement ps = c.prepareStatement(sql)) {
-            ps.setString(1, belegnr);
-            ps.setString(2, datum.toString());
-            ps.setString(3, kategorie);
-            ps.setString(4, beschreibung);
-            ps.setInt(5, betragCents);
-            ps.executeUpdate();
+        String state = "INSERT INTO import_state(quelle, zeile) VALUES(?,?) "
+                + "ON CONFLICT(quelle) DO UPDATE SET zeile = excluded.zeile";
+        try {
+            pool().write("db.insertBatch", c -> {
+                Connection con = c.connection();
+                con.setAutoCommit(false);
+                try {
+                    PreparedStatement ps = c.prepare(sql);
+                    for (Buchung b : rows) {
+                        checkOpen(b.datum());
+                        ps.setString(1, b.belegnr());
+                        ps.setLong(2, b.datum().toEpochDay());
+                        ps.setString(3, b.kategorie());
+                        ps.setString(4, b.beschreibung());
+                        ps.setLong(5, b.betragCents());
+                        ps.addBatch();
+                    }
+                    ps.executeBatch();
+                    if (importKey != null) {
+                        PreparedStatement st = c.prepare(state);
+                        st.setString(1, importKey);
+                        st.setLong(2, position);
+                        st.executeUpdate();
+                    }
+                    con.commit();
+                } catch (SQLException | RuntimeException e) {
+                    con.rollback();
+                    throw e;
+                } finally {
+                    con.setAutoCommit(true);
+                }
+                for (Buchung b : rows) saldo.add(LedgerPage.code(b.kategorie()), b.datum().toEpochDay(), b.betragCents());
+                return null;
+            });
+        } catch (SQLException e) {
+            throw new RuntimeException("Batch insert failed: " + e.getMessage(), e);
+        }
+    }
+
+    // read -> last position committed by insertBatch for this import, 0 if it never ran
+    public static long importPosition(String importKey) {
+        try {
+            return pool().read("db.importPosition", c -> {
+                PreparedStatement ps = c.prepare("SELECT zeile FROM import_state WHERE quelle = ?");
+                ps.setString(1, importKey);
+                try (ResultSet rs = ps.executeQuery()) {
+                    return rs.next() ? rs.getLong(1) : 0L;
+                }
+            });
         } catch (SQLException e) {
-            throw new RuntimeException("Insert failed: " + e.getMessage(), e);
-        }
-    }
-
-    // read -> ready-to-use JTable model
-    public static DefaultTableModel tableModelAll() {
-        String[] cols = {"ID","Beleg","Datum","Kategorie","Beschreibung","Betrag (€)"};
-        DefaultTableModel m = new DefaultTableModel(cols, 0) {
-            @Override public boolean isCellEditable(int r, int c) { return false; }
-        };
-        String sql = "SELECT id,belegnr,datum,kategorie,beschreibung,betrag_cents FROM entry ORDER BY date(datum), id";
-        try (Connection c = DriverManager.getConnection(URL);
-             PreparedStatement ps = c.prepareStatement(sql);
-             ResultSet rs = ps.executeQuery()) {
-            while (rs.next()) {
-                int cents = rs.getInt("betrag_cents");
-                m.addRow(new Object[]{
-                        rs.getInt("id"),
-                        rs.getString("belegnr"),
-                        rs.getString("datum"),
-                        rs.getString("kategorie"),
-                        rs.getString("beschreibung"),
-                        centsToEuroString(cents)
-                });
+            throw new RuntimeException("Query failed: " + e.getMessage(), e);
+        }
+    }
+
+    // write -> moves a finished fiscal year into its own read-only file; it accepts no further entries
+    public static void closeYear(int year) {
+        if (year >= LocalDate.now().getYear()) throw new IllegalArgumentException("Fiscal year " + year + " is not over yet");
+        try {
+            pool().write("db.closeYear", c -> {
+                partitions().archive(c.connection(), year);
+                return null;
+            });
+        } catch (SQLException e) {
+            throw new RuntimeException("Closing " + year + " failed: " + e.getMessage(), e);
+        }
+    }
+
+    // copies the database and its archives into a new backup while the application keeps running; writers are
+    // never blocked, the copy shows the state at its start. Old backups beyond buchhaltung.backup.keep are removed.
+    public static Path backup() {
+        try {
+            return backupStore().create(pool());
+        } catch (SQLException | IOException e) {
+            throw new RuntimeException("Backup failed: " + e.getMessage(), e);
+        }
+    }
+
+    // complete backups, newest first
+    public static List<Path> backups() throws IOException {
+        return backupStore().list();
+    }
+
+    // runs backup() every intervalMinutes on a background thread; failures are logged and retried next time
+    public static void scheduleBackups(long intervalMinutes) {
+        ScheduledExecutorService s = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "db-backup");
+            t.setDaemon(true);
+            t.setPriority(Thread.MIN_PRIORITY);
+            return t;
+        });
+        s.scheduleWithFixedDelay(() -> {
+            try {
+                backup();
+            } catch (RuntimeException e) {
+                LOG.log(Level.WARNING, "Scheduled backup failed", e);
             }
+        }, intervalMinutes, intervalMinutes, TimeUnit.MINUTES);
+    }
+
+    // verifies a backup (checksums, integrity, archives) and replaces the open database with it. Archive files
+    // are copied back first, the main file is restored page by page under the write lock, then checked again.
+    // Entries written after the backup are lost; listeners get a reload.
+    public static void restore(Path snapshot) {
+        try {
+            Backup.Verified v = Backup.verify(snapshot);
+            Path dir = backupStore().db().getParent();
+            for (Path a : v.archives()) {
+                Path tmp = dir.resolve(a.getFileName() + ".restore");
+                Files.copy(a, tmp, StandardCopyOption.REPLACE_EXISTING);
+                Files.move(tmp, dir.resolve(a.getFileName()), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+            pool().restore(v.main(), c -> {
+                Schema.migrate(c.connection());
+                partitions().load(c.connection());
+                try (Statement st = c.connection().createStatement();
+                     ResultSet rs = st.executeQuery("PRAGMA quick_check")) {
+                    String result = rs.next() ? rs.getString(1) : "no result";
+                    if (!"ok".equals(result)) throw new SQLException("Restored database failed the check: " + result);
+                }
+                try (Statement st = c.connection().createStatement();
+                     ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM main.entry")) {
+                    rs.next();
+                    if (rs.getLong(1) != v.entries()) {
+                        throw new SQLException("Restored " + rs.getLong(1) + " entries, backup has " + v.entries());
+                    }
+                }
+                return null;
+            });
+            loadSaldo();
+        } catch (SQLException | IOException e) {
+            throw new RuntimeException("Restore failed: " + e.getMessage(), e);
+        }
+        LOG.info("Restored database from " + snapshot);
+        fireReload();
+    }
+
+    private static synchronized Backup backupStore() {
+        if (backups == null) throw new IllegalStateException("DB not initialized, call DbLite.init() first");
+        return backups;
+    }
+
+    // an entry dated in a closed fiscal year; unlike other write errors retrying cannot help
+    public static final class YearClosedException extends SQLException {
+        private static final long serialVersionUID = 1L;
+
+        YearClosedException(int year) {
+            super("Fiscal year " + year + " is closed");
+        }
+    }
+
+    // true if entries dated d are rejected because their fiscal year is closed
+    public static boolean isClosed(LocalDate d) {
+        return partitions().isClosed(d.getYear());
+    }
+
+    private static void checkOpen(LocalDate datum) throws SQLException {
+        if (isClosed(datum)) throw new YearClosedException(datum.getYear());
+    }
+
+    // position of a row in ledger order (datum as epoch day, id), used as keyset for paging
+    public record EntryKey(int epochDay, long id) {}
+
+    // head for Partitions.Route.union, %s is the partition's entry table
+    private static final String COLS = "SELECT id,belegnr,datum,kategorie,beschreibung,betrag_cents FROM %s";
+
+    // number of matching rows plus the highest id that existed when they were counted
+    public record EntryCount(int rows, long maxId) {}
+
+    // read -> number of matching rows, known before any page is loaded; one statement, one snapshot
+    public static EntryCount countEntries(EntryQuery q) {
+        Partitions.Route r = partitions().route(q);
+        // the sequence covers archived ids as well
+        String sql = "SELECT (SELECT SUM(n) FROM (" + r.union("SELECT COUNT(*) AS n FROM %s", q.where()) + ")),"
+                + " (SELECT COALESCE(MAX(seq),0) FROM main.sqlite_sequence WHERE name = 'entry')";
+        try {
+            return pool().read("db.countEntries", c -> {
+                r.attach(c);
+                PreparedStatement ps = c.prepare(sql);
+                bind(ps, r, q);
+                try (ResultSet rs = ps.executeQuery()) {
+                    rs.next();
+                    return new EntryCount(rs.getInt(1), rs.getLong(2));
+                }
+            });
+        } catch (SQLException e) {
+            throw new RuntimeException("Query failed: " + e.getMessage(), e);
+        }
+    }
+
+    // read -> position of a row in ledger order among matching rows with an id below maxIdExcl
+    public static int countBefore(EntryQuery q, EntryKey key, long maxIdExcl) {
+        Partitions.Route r = partitions().route(q);
+        String sql = "SELECT SUM(n) FROM ("
+                + r.union("SELECT COUNT(*) AS n FROM %s", q.where("(datum,id) < (?,?)", "id < ?")) + ")";
+        try {
+            return pool().read("db.countBefore", c -> {
+                r.attach(c);
+                PreparedStatement ps = c.prepare(sql);
+                bind(ps, r, q, key.epochDay(), key.id(), maxIdExcl);
+                try (ResultSet rs = ps.executeQuery()) {
+                    rs.next();
+                    return rs.getInt(1);
+                }
+            });
+        } catch (SQLException e) {
+            throw new RuntimeException("Query failed: " + e.getMessage(), e);
+        }
+    }
+
+    // read -> sum over the matching amounts in O(log n) from the in-memory saldo index;
+    // with search terms the index does not apply and SQLite sums the full-text matches
+    public static long saldoCents(EntryQuery q) {
+        if (q.suche() != null) return sumEntries(q);
+        awaitReady();   // the index is filled by init
+        long t0 = System.nanoTime();
+        long sum = saldo.sum(q);
+        Metrics.record("db.saldoCents", t0);
+        return sum;
+    }
+
+    private static long sumEntries(EntryQuery q) {
+        Partitions.Route r = partitions().route(q);
+        String sql = "SELECT COALESCE(SUM(s),0) FROM (" + r.union("SELECT SUM(betrag_cents) AS s FROM %s", q.where()) + ")";
+        try {
+            return pool().read("db.sumEntries", c -> {
+                r.attach(c);
+                PreparedStatement ps = c.prepare(sql);
+                bind(ps, r, q);
+                try (ResultSet rs = ps.executeQuery()) {
+                    rs.next();
+                    return rs.getLong(1);
+                }
+            });
         } catch (SQLException e) {
             throw new RuntimeException("Query failed: " + e.getMessage(), e);
         }
-        return m;
     }
 
-    public static String centsToEuroString(int cents) {
-        boolean neg = cents < 0;
-        int abs = Math.abs(cents);
-        int eur = abs / 100;
-        int ct = abs % 100;
-        return (neg ? "-" : "") + eur + "," + String.format("%02d", ct);
+    // read -> whether the row with this id is matched by the query, including its search terms
+    public static boolean matches(EntryQuery q, long id) {
+        Partitions.Route r = partitions().route(q);
+        String sql = "SELECT EXISTS(" + r.union("SELECT 1 FROM %s", q.where("id = ?")) + ")";
+        try {
+            return pool().read("db.matches", c -> {
+                r.attach(c);
+                PreparedStatement ps = c.prepare(sql);
+                bind(ps, r, q, id);
+                try (ResultSet rs = ps.executeQuery()) {
+                    return rs.next() && rs.getBoolean(1);
+                }
+            });
+        } catch (SQLException e) {
+            throw new RuntimeException("Query failed: " + e.getMessage(), e);
+        }
+    }
+
+    // read -> streams the best limit full-text matches, most relevant first (bm25); q.suche() must be set
+    public static long searchRanked(EntryQuery q, int limit, RowSink sink) throws IOException {
+        EntryQuery filter = new EntryQuery(q.von(), q.bis(), q.kategorie());
+        Partitions.Route r = partitions().route(q);
+        String sql = r.union("SELECT e.id, e.belegnr, e.datum, e.kategorie, e.beschreibung, e.betrag_cents, entry_fts.rank AS rank"
+                + " FROM entry_fts JOIN %s e ON e.id = entry_fts.rowid", filter.where("entry_fts MATCH ?")) + "ORDER BY rank, id LIMIT ?";
+        return stream("db.searchRanked", r, sql, ps -> {
+            int i = bind(ps, r, filter, EntryQuery.match(q.suche()));
+            ps.setInt(i, limit);
+        }, sink);
+    }
+
+    // per-category totals of the matching rows
+    public record CategoryTotal(String kategorie, long anzahl, long cents) {}
+
+    // read -> totals per category from the daily rollup, without touching entry;
+    // search terms need the rows themselves, then entry is grouped instead
+    public static List<CategoryTotal> categoryTotals(EntryQuery q) {
+        if (q.suche() != null) {
+            Partitions.Route r = partitions().route(q);
+            String sql = "SELECT kategorie, COUNT(*), SUM(betrag_cents) FROM ("
+                    + r.union("SELECT kategorie, betrag_cents FROM %s", q.where()) + ") GROUP BY kategorie ORDER BY kategorie";
+            return categoryTotals(r, sql, ps -> bind(ps, r, q));
+        }
+        StringBuilder sql = new StringBuilder("SELECT kategorie, SUM(anzahl), SUM(summe_cents) FROM entry_rollup WHERE 1");
+        if (q.kategorie() != null) sql.append(" AND kategorie = ?");
+        if (q.von() != null) sql.append(" AND tag >= ?");
+        if (q.bis() != null) sql.append(" AND tag <= ?");
+        sql.append(" GROUP BY kategorie HAVING SUM(anzahl) > 0 ORDER BY kategorie");
+        return categoryTotals(Partitions.MAIN, sql.toString(), ps -> {
+            int i = 1;
+            if (q.kategorie() != null) ps.setString(i++, q.kategorie());
+            if (q.von() != null) ps.setLong(i++, q.von().toEpochDay());
+            if (q.bis() != null) ps.setLong(i, q.bis().toEpochDay());
+        });
+    }
+
+    private static List<CategoryTotal> categoryTotals(Partitions.Route r, String sql, Binder binder) {
+        try {
+            return pool().read("db.categoryTotals", c -> {
+                r.attach(c);
+                PreparedStatement ps = c.prepare(sql);
+                binder.bind(ps);
+                List<CategoryTotal> out = new ArrayList<>();
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) out.add(new CategoryTotal(rs.getString(1), rs.getLong(2), rs.getLong(3)));
+                }
+                return out;
+            });
+        } catch (SQLException e) {
+            throw new RuntimeException("Query failed: " + e.getMessage(), e);
+        }
     }
 
-    public static int getBetragCents(int cents){
-        // add missing logic. I'm gonna need this function for further calculations.
-        // like I'm gonna need it to add all those numbers which is why there are also negatives.
-        boolean neg = cents < 0;
-        int abs = Math.abs(cents);
-        int eur = abs / 100; int ct = abs % 100;
-        return (neg ? -1 : 1) * eur;
+    // read -> totals per category and period; the range is split into chunks that run in parallel
+    // on separate readers (see Pivot). Open bounds are taken from the first and last day with entries.
+    public static Pivot.Table pivot(EntryQuery q, Pivot.Periode periode) {
+        long t0 = System.nanoTime();
+        try {
+            long[] range = pivotRange(q);
+            if (range == null) return Pivot.Table.empty(periode);
+            return Pivot.compute(periode, range[0], range[1],
+                    q.suche() == null ? (from, to, into) -> rollupChunk(q, from, to, into)
+                                      : (from, to, into) -> entryChunk(q, from, to, into));
+        } catch (SQLException e) {
+            throw new RuntimeException("Query failed: " + e.getMessage(), e);
+        } finally {
+            Metrics.record("db.pivot", t0);
+        }
+    }
+
+    // first and last epoch day of the report, or null if nothing can match
+    private static long[] pivotRange(EntryQuery q) throws SQLException {
+        if (q.von() != null && q.bis() != null) return new long[]{q.von().toEpochDay(), q.bis().toEpochDay()};
+        String sql = "SELECT MIN(tag), MAX(tag) FROM entry_rollup WHERE anzahl > 0"
+                + (q.kategorie() != null ? " AND kategorie = ?" : "");
+        return pool().read("db.pivotRange", c -> {
+            PreparedStatement ps = c.prepare(sql);
+            if (q.kategorie() != null) ps.setString(1, q.kategorie());
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                long min = rs.getLong(1);
+                if (rs.wasNull()) return null;
+                long max = rs.getLong(2);
+                return new long[]{q.von() != null ? q.von().toEpochDay() : min, q.bis() != null ? q.bis().toEpochDay() : max};
+            }
+        });
+    }
+
+    // daily sums of one chunk from the rollup, archived years included
+    private static void rollupChunk(EntryQuery q, long from, long to, Pivot.Partial into) throws SQLException {
+        String sql = "SELECT kategorie, tag, summe_cents, anzahl FROM entry_rollup WHERE "
+                + (q.kategorie() != null ? "kategorie = ? AND " : "") + "tag BETWEEN ? AND ? AND anzahl > 0";
+        pool().read("db.pivotChunk", c -> {
+            PreparedStatement ps = c.prepare(sql);
+            int i = 1;
+            if (q.kategorie() != null) ps.setString(i++, q.kategorie());
+            ps.setLong(i++, from);
+            ps.setLong(i, to);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) into.add(rs.getString(1), rs.getLong(2), rs.getLong(3), rs.getLong(4));
+            }
+            return null;
+        });
+    }
+
+    // with search terms: the matching rows of one chunk, grouped by day, from the partitions it touches
+    private static void entryChunk(EntryQuery q, long from, long to, Pivot.Partial into) throws SQLException {
+        EntryQuery chunk = new EntryQuery(LocalDate.ofEpochDay(from), LocalDate.ofEpochDay(to), q.kategorie(), q.suche());
+        Partitions.Route r = partitions().route(chunk);
+        String sql = "SELECT kategorie, datum, SUM(betrag_cents), COUNT(*) FROM ("
+                + r.union("SELECT kategorie, datum, betrag_cents FROM %s", chunk.where()) + ") GROUP BY 1, 2";
+        pool().read("db.pivotChunk", c -> {
+            r.attach(c);
+            PreparedStatement ps = c.prepare(sql);
+            bind(ps, r, chunk);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) into.add(rs.getString(1), rs.getLong(2), rs.getLong(3), rs.getLong(4));
+            }
+            return null;
+        });
+    }
+
+    // receives the rows of forEachEntry one at a time
+    @FunctionalInterface
+    public interface RowSink {
+        void row(long id, String belegnr, int epochDay, String kategorie, String beschreibung, long cents)
+                throws IOException;
+    }
+
+    // read -> streams every matching row in ledger order from a forward-only cursor; returns the row count.
+    // Nothing is buffered here, so memory stays flat for any ledger size; the reader is held until the end.
+    public static long forEachEntry(EntryQuery q, RowSink sink) throws IOException {
+        Partitions.Route r = partitions().route(q);
+        return stream("db.forEachEntry", r, r.union(COLS, q.where()) + "ORDER BY datum, id", ps -> bind(ps, r, q), sink);
+    }
+
+    private interface Binder {
+        void bind(PreparedStatement ps) throws SQLException;
+    }
+
+    // binds the filter and the given extra values once per partition of the route -> next free index
+    private static int bind(PreparedStatement ps, Partitions.Route r, EntryQuery q, Object... extra) throws SQLException {
+        int i = 1;
+        for (int b = 0; b < r.branches(); b++) {
+            i = q.bind(ps, i);
+            for (Object p : extra) ps.setObject(i++, p);
+        }
+        return i;
+    }
+
+    private static long stream(String op, Partitions.Route r, String sql, Binder binder, RowSink sink) throws IOException {
+        try {
+            return pool().read(op, c -> {
+                r.attach(c);
+                PreparedStatement ps = c.prepare(sql);
+                binder.bind(ps);
+                long n = 0;
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        sink.row(rs.getLong(1), rs.getString(2), rs.getInt(3), rs.getString(4), rs.getString(5),
+                                rs.getLong(6));
+                        n++;
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return n;
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } catch (SQLException e) {
+            throw new RuntimeException("Query failed: " + e.getMessage(), e);
+        }
+    }
+
+    // Page reads only see ids up to maxId: the caller's row count covers exactly those, newer rows
+    // reach it as single entries (see EntryTableModel). Long.MAX_VALUE for all.
+
+    // read -> up to limit matching rows following the given key, in ledger order
+    public static LedgerPage pageAfter(EntryQuery q, EntryKey after, int limit, long maxId) {
+        Partitions.Route r = partitions().route(q);
+        return page("db.pageAfter", r, r.union(COLS, q.where("(datum,id) > (?,?)", "id <= ?")) + "ORDER BY datum, id LIMIT ?",
+                false, q, new Object[]{after.epochDay(), after.id(), maxId}, limit);
+    }
+
+    // read -> up to limit matching rows preceding the given key, in ledger order
+    public static LedgerPage pageBefore(EntryQuery q, EntryKey before, int limit, long maxId) {
+        Partitions.Route r = partitions().route(q);
+        return page("db.pageBefore", r, r.union(COLS, q.where("(datum,id) < (?,?)", "id <= ?")) + "ORDER BY datum DESC, id DESC LIMIT ?",
+                true, q, new Object[]{before.epochDay(), before.id(), maxId}, limit);
+    }
+
+    // read -> matching rows [offset, offset+limit) without a known neighbour key; walks from the nearer end.
+    // total counts the matching rows up to maxId
+    public static LedgerPage pageAt(EntryQuery q, int offset, int limit, int total, long maxId) {
+        int fromEnd = total - offset - limit;
+        Partitions.Route r = partitions().route(q);
+        if (r.branches() > 1) return pageAcross(q, r, offset, limit, maxId);
+        if (fromEnd < offset) {
+            return page("db.pageAt", r, r.union(COLS, q.where("id <= ?")) + "ORDER BY datum DESC, id DESC LIMIT ? OFFSET ?", true,
+                    q, new Object[]{maxId}, limit, Math.max(fromEnd, 0));
+        }
+        return page("db.pageAt", r, r.union(COLS, q.where("id <= ?")) + "ORDER BY datum, id LIMIT ? OFFSET ?", false,
+                q, new Object[]{maxId}, limit, offset);
+    }
+
+    // pageAt over several partitions: counts the matches segment by segment up to the one holding the
+    // offset and reads from there, so the offset is walked in one index instead of a merge over all
+    private static LedgerPage pageAcross(EntryQuery q, Partitions.Route r, int offset, int limit, long maxId) {
+        List<Partitions.Segment> segs = r.segments(q);
+        String where = q.where("datum BETWEEN ? AND ?", "id <= ?");
+        try {
+            return pool().read("db.pageAt", c -> {
+                r.attach(c);
+                LedgerPage page = new LedgerPage(32);
+                int skip = offset;
+                for (int s = 0; s < segs.size() && page.size() < limit; s++) {
+                    Partitions.Segment seg = segs.get(s);
+                    PreparedStatement ps = c.prepare(seg.qualify("SELECT COUNT(*) FROM " + seg.table() + where));
+                    ps.setLong(bind(ps, q, seg, 1), maxId);
+                    int n;
+                    try (ResultSet rs = ps.executeQuery()) {
+                        rs.next();
+                        n = rs.getInt(1);
+                    }
+                    if (skip >= n) {
+                        skip -= n;
+                        continue;
+                    }
+                    int take = Math.min(limit - page.size(), n - skip);
+                    int fromEnd = n - skip - take;
+                    boolean reversed = fromEnd < skip;
+                    PreparedStatement rows = c.prepare(seg.qualify(COLS.formatted(seg.table()) + where)
+                            + (reversed ? "ORDER BY datum DESC, id DESC" : "ORDER BY datum, id") + " LIMIT ? OFFSET ?");
+                    int i = bind(rows, q, seg, 1);
+                    rows.setLong(i++, maxId);
+                    rows.setInt(i++, take);
+                    rows.setInt(i, reversed ? fromEnd : skip);
+                    // rows read backwards are inserted at the segment's start, which restores ledger order
+                    int start = page.size();
+                    try (ResultSet rs = rows.executeQuery()) {
+                        while (rs.next()) {
+                            page.insert(reversed ? start : page.size(), rs.getLong(1), rs.getInt(3), rs.getString(2),
+                                    LedgerPage.code(rs.getString(4)), rs.getString(5), rs.getLong(6));
+                        }
+                    }
+                    skip = 0;
+                }
+                return page;
+            });
+        } catch (SQLException e) {
+            throw new RuntimeException("Query failed: " + e.getMessage(), e);
+        }
+    }
+
+    private static int bind(PreparedStatement ps, EntryQuery q, Partitions.Segment seg, int index) throws SQLException {
+        index = q.bind(ps, index);
+        ps.setLong(index++, seg.fromDay());
+        ps.setLong(index++, seg.toDay());
+        return index;
+    }
+
+    // keyset values are bound with the filter of every partition, params once at the end
+    private static LedgerPage page(String op, Partitions.Route r, String sql, boolean reversed, EntryQuery q,
+                                   Object[] keyset, Object... params) {
+        try {
+            return pool().read(op, c -> {
+                r.attach(c);
+                PreparedStatement ps = c.prepare(sql);
+                int i = bind(ps, r, q, keyset);
+                for (Object p : params) ps.setObject(i++, p);
+                LedgerPage page = new LedgerPage(32);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        page.add(rs.getLong(1), rs.getInt(3), rs.getString(2), LedgerPage.code(rs.getString(4)),
+                                rs.getString(5), rs.getLong(6));
+                    }
+                }
+                if (reversed) page.reverse();
+                return page;
+            });
+        } catch (SQLException e) {
+            throw new RuntimeException("Query failed: " + e.getMessage(), e);
+        }
     }
 }
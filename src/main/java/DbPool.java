@@ -0,0 +1,324 @@
+import org.sqlite.SQLiteConfig;
+import org.sqlite.SQLiteConnection;
+import org.sqlite.SQLiteLimits;
+
+import java.nio.file.Path;
+import java.sql.*;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * {@summary Verwaltet die SQLite-Verbindungen von {@link DbLite}.}
+ * Eine langlebige Schreib-Verbindung (serialisiert über ein Lock) und ein kleiner Pool
+ * von Nur-Lese-Verbindungen. Die Datenbank läuft im WAL-Modus, dadurch blockieren Leser
+ * den Schreiber nie. Jede Verbindung hält einen eigenen Cache vorbereiteter Statements.
+ */
+final class DbPool implements AutoCloseable {
+
+    /** Arbeit auf einer geliehenen Verbindung. */
+    @FunctionalInterface
+    interface SqlWork<T> {
+        T run(Lease c) throws SQLException;
+    }
+
+    static final int READERS = 4;
+    private static final int STATEMENT_CACHE = 32;
+    private static final int CACHE_KIB = 16 * 1024;              // 16 MiB Page-Cache pro Verbindung
+    private static final long MMAP_BYTES = 256L * 1024 * 1024;    // 256 MiB memory-mapped I/O
+    private static final int ARCHIVE_CACHE_KIB = 2 * 1024;        // archives are mapped, little cache needed
+    // SQLITE_MAX_ATTACHED of the bundled SQLite; the runtime default of 10 is raised in open()
+    static final int MAX_ATTACHED = 125;
+    private static final int BACKUP_PAGES_PER_STEP = 256;
+    private static final int BACKUP_BUSY_SLEEP_MS = 10;
+    private static final int BACKUP_BUSY_RETRIES = 500;
+    private static final long CLOSE_WAIT_NANOS = TimeUnit.SECONDS.toNanos(10);   // for leased readers
+
+    private final String url;
+    private final Lease writer;
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final BlockingQueue<Lease> idleReaders = new ArrayBlockingQueue<>(READERS);
+    private int openedReaders;
+    // readers opened before the last restore are closed on return instead of being reused
+    private volatile int readerGeneration;
+    private volatile boolean closed;
+
+    DbPool(String url) throws SQLException {
+        this.url = url;
+        this.writer = new Lease(open(false), 0);
+    }
+
+    /**
+     * {@summary Führt Schreibarbeit auf der einzigen Schreib-Verbindung aus.}
+     * Aufrufe aus mehreren Threads werden nacheinander abgearbeitet.
+     * @param op Name für {@link Metrics}; gemessen wird inklusive Wartezeit auf das Lock
+     */
+    <T> T write(String op, SqlWork<T> work) throws SQLException {
+        ensureOpen();
+        long t0 = System.nanoTime();
+        writeLock.lock();
+        Metrics.record("db.wait.writer", t0);
+        try {
+            return work.run(writer);
+        } finally {
+            writeLock.unlock();
+            Metrics.record(op, t0);
+        }
+    }
+
+    /**
+     * {@summary Führt Lesearbeit auf einer Verbindung aus dem Leser-Pool aus.}
+     * Neue Leser werden bei Bedarf bis zur Poolgröße geöffnet, danach wird gewartet.
+     * @param op Name für {@link Metrics}; gemessen wird inklusive Wartezeit auf einen Leser
+     */
+    <T> T read(String op, SqlWork<T> work) throws SQLException {
+        long t0 = System.nanoTime();
+        Lease c = acquireReader();
+        Metrics.record("db.wait.reader", t0);
+        try {
+            return work.run(c);
+        } finally {
+            release(c);
+            Metrics.record(op, t0);
+        }
+    }
+
+    /**
+     * {@summary Kopiert die Hauptdatei mit der Online-Backup-API seitenweise in eine neue Datei.}
+     * Die Kopie läuft auf einer eigenen Nur-Lese-Verbindung, die ihre Lesetransaktion über alle
+     * Schritte offen hält. Im WAL-Modus sieht sie so einen festen Stand, beginnt bei gleichzeitigen
+     * Commits nicht von vorn und sperrt den Schreiber zu keinem Zeitpunkt. Zwischen den Schritten
+     * pausiert sie kurz, damit Commits nicht hinter der Kopie auf die Platte warten.
+     * @param dest        neue Datei, darf noch nicht existieren
+     * @param pauseMicros Pause nach jedem Schritt von 256 Seiten
+     */
+    void backup(Path dest, long pauseMicros) throws SQLException {
+        ensureOpen();
+        long t0 = System.nanoTime();
+        try (Connection c = open(true)) {
+            c.setAutoCommit(false);
+            try (Statement st = c.createStatement(); ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM sqlite_master")) {
+                rs.next();   // starts the read transaction that pins the snapshot
+            }
+            int rc = ((SQLiteConnection) c).getDatabase().backup("main", dest.toString(), (remaining, total) -> {
+                if (remaining > 0 && pauseMicros > 0) LockSupport.parkNanos(pauseMicros * 1000);
+            }, BACKUP_BUSY_SLEEP_MS, BACKUP_BUSY_RETRIES, BACKUP_PAGES_PER_STEP);
+            if (rc != 0) throw new SQLException("Backup to " + dest + " failed with SQLite code " + rc);
+            c.rollback();
+        } finally {
+            Metrics.record("db.backup", t0);
+        }
+    }
+
+    /**
+     * {@summary Ersetzt den Inhalt der Hauptdatei durch die einer Sicherung.}
+     * Läuft unter dem Schreib-Lock auf der Schreib-Verbindung; Leser sehen danach den neuen
+     * Stand. Alle Leser werden anschließend neu geöffnet, damit keiner mehr Archivdateien des
+     * alten Stands angehängt hat. {@code after} läuft noch unter dem Lock, z. B. für Migrationen.
+     */
+    void restore(Path src, SqlWork<Void> after) throws SQLException {
+        write("db.restore", c -> {
+            int rc = ((SQLiteConnection) c.connection()).getDatabase().restore("main", src.toString(),
+                    (remaining, total) -> {}, BACKUP_BUSY_SLEEP_MS, BACKUP_BUSY_RETRIES, BACKUP_PAGES_PER_STEP);
+            if (rc != 0) throw new SQLException("Restore from " + src + " failed with SQLite code " + rc);
+            after.run(c);
+            readerGeneration++;
+            Lease idle;
+            while ((idle = idleReaders.poll()) != null) discard(idle);
+            return null;
+        });
+    }
+    /**
+     * {@summary Schließt alle Verbindungen und schreibt das WAL in die Hauptdatei zurück.}
+     */
+    @Override
+    public void close() {
+        if (closed) return;
+        closed = true;
+        // verliehene Leser (AsyncDb, Pivot-Tasks) arbeiten zu Ende und schließen sich bei der Rückgabe selbst
+        long deadline = System.nanoTime() + CLOSE_WAIT_NANOS;
+        try {
+            while (true) {
+                synchronized (this) {
+                    if (openedReaders == 0) break;
+                }
+                long left = deadline - System.nanoTime();
+                if (left <= 0) break;
+                // also catches a reader returned just before closed was set
+                Lease idle = idleReaders.poll(Math.min(left, TimeUnit.MILLISECONDS.toNanos(50)), TimeUnit.NANOSECONDS);
+                if (idle != null) discard(idle);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        writeLock.lock();
+        try (Statement st = writer.connection().createStatement()) {
+            st.execute("PRAGMA optimize");
+            st.execute("PRAGMA wal_checkpoint(TRUNCATE)");
+        } catch (SQLException ignored) {
+            // beim Beenden nicht mehr relevant
+        } finally {
+            writer.close();
+            writeLock.unlock();
+        }
+    }
+
+    private Lease acquireReader() throws SQLException {
+        ensureOpen();
+        Lease c = idleReaders.poll();
+        if (c != null) return c;
+        synchronized (this) {
+            if (openedReaders < READERS) {
+                Lease fresh = new Lease(open(true), readerGeneration);
+                openedReaders++;
+                return fresh;
+            }
+        }
+        try {
+            c = idleReaders.poll(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a reader connection", e);
+        }
+        if (c == null) throw new SQLException("No reader connection available");
+        return c;
+    }
+
+    private void release(Lease c) {
+        if (closed) discard(c);
+        else if (c.generation != readerGeneration) discard(c);
+        else idleReaders.offer(c);
+    }
+
+    private void discard(Lease c) {
+        c.close();
+        synchronized (this) {
+            openedReaders--;
+        }
+    }
+
+    private Connection open(boolean readOnly) throws SQLException {
+        SQLiteConfig cfg = new SQLiteConfig();
+        cfg.setBusyTimeout(5_000);
+        cfg.setCacheSize(-CACHE_KIB);
+        cfg.setTempStore(SQLiteConfig.TempStore.MEMORY);
+        if (readOnly) {
+            cfg.setReadOnly(true);
+        } else {
+            cfg.setJournalMode(SQLiteConfig.JournalMode.WAL);
+            cfg.setSynchronous(SQLiteConfig.SynchronousMode.NORMAL);
+        }
+        Connection c = cfg.createConnection(url);
+        // unbounded queries attach every archive (see Partitions.route)
+        ((SQLiteConnection) c).setLimit(SQLiteLimits.SQLITE_LIMIT_ATTACHED, MAX_ATTACHED);
+        try (Statement st = c.createStatement()) {
+            st.execute("PRAGMA mmap_size=" + MMAP_BYTES);
+        }
+        return c;
+    }
+
+    private void ensureOpen() throws SQLException {
+        if (closed) throw new SQLException("Connection pool is closed");
+    }
+
+    /**
+     * {@summary Geliehene Verbindung mit LRU-Cache vorbereiteter Statements.}
+     * Die gelieferten Statements gehören dem Cache und dürfen nicht geschlossen werden.
+     */
+    static final class Lease {
+        private final Connection connection;
+        private final Map<String, PreparedStatement> statements =
+                new LinkedHashMap<>(STATEMENT_CACHE, 0.75f, true) {
+                    @Override
+                    protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+                        if (size() <= STATEMENT_CACHE) return false;
+                        closeQuietly(eldest.getValue());
+                        return true;
+                    }
+                };
+
+        private final Map<String, String> attached = new LinkedHashMap<>(16, 0.75f, true);
+        private final int generation;
+
+        private Lease(Connection connection, int generation) {
+            this.connection = connection;
+            this.generation = generation;
+        }
+
+        Connection connection() {
+            return connection;
+        }
+
+        /** Liefert ein (gecachtes) vorbereitetes Statement mit zurückgesetzten Parametern. */
+        PreparedStatement prepare(String sql) throws SQLException {
+            PreparedStatement ps = statements.get(sql);
+            if (ps == null) {
+                ps = connection.prepareStatement(sql);
+                statements.put(sql, ps);
+            } else {
+                ps.clearParameters();
+            }
+            return ps;
+        }
+
+        /**
+         * {@summary Hängt Datenbankdateien schreibgeschützt und memory-mapped an, soweit noch nicht geschehen.}
+         * Ist kein Platz mehr frei, werden die am längsten nicht gebrauchten wieder abgehängt.
+         * @param files Schema-Name → URI der Datei
+         */
+        void attach(Map<String, String> files) throws SQLException {
+            if (files.size() > MAX_ATTACHED) {
+                throw new SQLException("Query spans " + files.size() + " archives, at most " + MAX_ATTACHED
+                        + " can be read at once");
+            }
+            for (Map.Entry<String, String> f : files.entrySet()) {
+                if (attached.get(f.getKey()) != null) continue;
+                if (attached.size() == MAX_ATTACHED) {
+                    String eldest = null;
+                    for (String schema : attached.keySet()) {
+                        if (!files.containsKey(schema)) {
+                            eldest = schema;
+                            break;
+                        }
+                    }
+                    detach(eldest);
+                }
+                try (PreparedStatement ps = connection.prepareStatement("ATTACH ? AS " + f.getKey());
+                     Statement st = connection.createStatement()) {
+                    ps.setString(1, f.getValue());
+                    ps.execute();
+                    st.execute("PRAGMA " + f.getKey() + ".mmap_size=" + MMAP_BYTES);
+                    st.execute("PRAGMA " + f.getKey() + ".cache_size=" + -ARCHIVE_CACHE_KIB);
+                }
+                attached.put(f.getKey(), f.getValue());
+            }
+        }
+
+        private void detach(String schema) throws SQLException {
+            // cached statements on the schema would fail once it is gone
+            statements.entrySet().removeIf(e -> {
+                if (!e.getKey().contains(schema + ".")) return false;
+                closeQuietly(e.getValue());
+                return true;
+            });
+            try (Statement st = connection.createStatement()) {
+                st.execute("DETACH " + schema);
+            }
+            attached.remove(schema);
+        }
+
+        private void close() {
+            for (PreparedStatement ps : statements.values()) closeQuietly(ps);
+            statements.clear();
+            try { connection.close(); } catch (SQLException ignored) {}
+        }
+
+        private static void closeQuietly(Statement st) {
+            try { st.close(); } catch (SQLException ignored) {}
+        }
+    }
+}
@@ -0,0 +1,77 @@
+import javax.swing.*;
+import java.util.logging.Logger;
+
+/**
+ * {@summary Erkennt Hänger des Event Dispatch Threads und protokolliert, woran er gerade arbeitet.}
+ * Ein Hintergrund-Thread stellt alle {@value #PROBE_MILLIS} ms einen leeren Auftrag in die
+ * Event-Queue. Wird er nach der Schwelle noch nicht ausgeführt, wird der Stack des EDT einmal
+ * mitgeschrieben; die Dauer jedes Hängers landet im Histogramm {@code edt.stall}, die
+ * Verzögerung jeder Probe in {@code edt.lag}.
+ */
+final class EdtWatchdog {
+
+    private static final Logger LOG = Logger.getLogger("Buchhaltung.edt");
+    private static final long PROBE_MILLIS = 50;
+
+    private final long thresholdNanos;
+    private volatile Thread edt;
+    private volatile long posted;      // nanoTime der offenen Probe, 0 = keine offen
+    private volatile boolean reported;
+
+    private EdtWatchdog(long thresholdMillis) {
+        this.thresholdNanos = thresholdMillis * 1_000_000;
+    }
+
+    /**
+     * {@summary Startet die Überwachung als Daemon-Thread.}
+     * @param thresholdMillis ab dieser Verzögerung gilt der EDT als hängend
+     */
+    static void start(long thresholdMillis) {
+        EdtWatchdog w = new EdtWatchdog(thresholdMillis);
+        Thread t = new Thread(w::run, "edt-watchdog");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    private void run() {
+        try {
+            while (true) {
+                Thread.sleep(PROBE_MILLIS);
+                long p = posted;
+                if (p == 0) {
+                    probe();
+                } else if (!reported && System.nanoTime() - p > thresholdNanos) {
+                    reported = true;
+                    report(System.nanoTime() - p);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void probe() {
+        long p = System.nanoTime();
+        posted = p;
+        SwingUtilities.invokeLater(() -> {
+            long lag = System.nanoTime() - p;
+            edt = Thread.currentThread();
+            Metrics.histogram("edt.lag").record(lag);
+            if (lag > thresholdNanos) {
+                Metrics.histogram("edt.stall").record(lag);
+                if (reported) LOG.warning(String.format("EDT stall ended after %d ms", lag / 1_000_000));
+            }
+            reported = false;
+            posted = 0;
+        });
+    }
+
+    private void report(long nanos) {
+        Thread t = edt;
+        StringBuilder sb = new StringBuilder(String.format("EDT blocked for %d ms", nanos / 1_000_000));
+        if (t != null) {
+            for (StackTraceElement e : t.getStackTrace()) sb.append("\n\tat ").append(e);
+        }
+        LOG.warning(sb.toString());
+    }
+}
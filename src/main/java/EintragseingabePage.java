@@ -1,11 +1,9 @@
 import javax.swing.*;
 import javax.swing.text.*;
 import java.awt.*;
-import java.math.BigDecimal;
 import java.text.*;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
-import java.util.Locale;
 
 public class EintragseingabePage {
     private JPanel rootPnl;
@@ -27,8 +25,6 @@ public class EintragseingabePage {
     private JPanel helperPnl;
     private JFormattedTextField betragTextF;
 
-    private BuchhaltungMainPage mainPage = new BuchhaltungMainPage();
-
     private final DateTimeFormatter DATE_FMT = DateTimeFormatter.ofPattern("yyyy-MM-dd");
 
     public EintragseingabePage() {
@@ -55,12 +51,26 @@ public class EintragseingabePage {
      * {@summary Verdrahtet Aktionen wie Abbrechen-Schließen.}
      */
     private void initAmountField() {
-        DecimalFormat df = new DecimalFormat("0.00", new DecimalFormatSymbols(Locale.GERMANY));
-        df.setGroupingUsed(false);
-        NumberFormatter nf = new NumberFormatter(df);
-        nf.setValueClass(BigDecimal.class);
-        nf.setAllowsInvalid(false);
-        nf.setMinimum(BigDecimal.ZERO);
+        // Cent als Long, exakt über Money.parse; leer ergibt null
+        DefaultFormatter nf = new DefaultFormatter() {
+            @Override public Object stringToValue(String text) throws ParseException {
+                if (text == null || text.isBlank()) return null;
+                try {
+                    long cents = Money.parse(text);
+                    if (cents < 0) throw new ParseException("negativer Betrag", 0);
+                    return cents;
+                } catch (NumberFormatException | ArithmeticException ex) {
+                    throw new ParseException(ex.getMessage(), 0);
+                }
+            }
+
+            @Override public String valueToString(Object value) {
+                return value instanceof Long cents ? Money.format(cents, false) : "";
+            }
+        };
+        nf.setValueClass(Long.class);
+        nf.setOverwriteMode(false);
+        nf.setCommitsOnValidEdit(true);
         if (betragTextF == null) betragTextF = new JFormattedTextField();
         betragTextF.setFormatterFactory(new DefaultFormatterFactory(nf));
         betragTextF.setColumns(10);
@@ -87,27 +97,37 @@ public class EintragseingabePage {
 
             // Kategorie
             String kat = (String) kategorieComboB.getSelectedItem();
-            if (kat == null || kat.isBlank()) kat = "Einnahmen";
 
             // Beschreibung
             String desc = beschreibungTextArea.getText().trim();
 
             // Betrag aus dem JFormattedTextField holen
-            BigDecimal val = (BigDecimal) betragTextF.getValue();
+            try {
+                betragTextF.commitEdit();
+            } catch (ParseException ex) {
+                betragTextF.setValue(null);
+            }
+            Long val = (Long) betragTextF.getValue();
             if (val == null) {
                 JOptionPane.showMessageDialog(rootPnl, "Bitte Betrag eingeben (z. B. 12,34).");
                 betragTextF.requestFocus();
                 return;
             }
-            int cents = val.movePointRight(2).setScale(0, java.math.RoundingMode.HALF_UP).intValueExact();
-            if ("Ausgaben".equalsIgnoreCase(kat)) cents = -Math.abs(cents);
-
-            // tatsächliches INSERT
-            DbLite.insert(belegnr, d, kat, desc, cents);
-            Window w = SwingUtilities.getWindowAncestor(rootPnl);
-            if (w != null) w.dispose();
-            JOptionPane.showMessageDialog(rootPnl, "Gespeichert.");
-            mainPage.loadEntries();
+            // Kategorie-Vorgabe und Vorzeichen wie beim CSV-Import
+            Buchung b = Buchung.entwurf(belegnr, d, kat, desc, val);
+
+            // tatsächliches INSERT, im Hintergrund; mit Journal ist es gespeichert, sobald es dort steht
+            bestaetigenBtn.setEnabled(false);
+            // die Hauptseite erfährt über DbLite.addEntryListener von der neuen Buchung
+            AsyncDb.onEdt(AsyncDb.supply(() -> DbLite.save(b.belegnr(), b.datum(), b.kategorie(),
+                    b.beschreibung(), b.betragCents())).thenCompose(f -> f), v -> {
+                Window w = SwingUtilities.getWindowAncestor(rootPnl);
+                if (w != null) w.dispose();
+                JOptionPane.showMessageDialog(rootPnl, "Gespeichert.");
+            }, ex -> {
+                bestaetigenBtn.setEnabled(true);
+                JOptionPane.showMessageDialog(rootPnl, "Fehler: " + ex.getMessage());
+            });
         } catch (Exception ex) {
             JOptionPane.showMessageDialog(rootPnl, "Fehler: " + ex.getMessage());
         }
@@ -0,0 +1,95 @@
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@summary Filter auf die Eintragstabelle: Zeitraum, Kategorie und Suchbegriffe.}
+ * Wird von {@link DbLite} in ein parametrisiertes WHERE übersetzt, das über die Indizes
+ * {@code (datum, id)} bzw. {@code (kategorie, datum, id)} als Bereichsscan läuft; Suchbegriffe
+ * gehen über den Volltextindex {@code entry_fts}.
+ * Leere Felder ({@code null}) schränken nicht ein.
+ *
+ * @param von       frühestes Datum (inklusive) oder {@code null}
+ * @param bis       spätestes Datum (inklusive) oder {@code null}
+ * @param kategorie "Einnahmen", "Ausgaben" oder {@code null} für alle
+ * @param suche     Wortanfänge in Beleg oder Beschreibung, alle müssen vorkommen; oder {@code null}
+ */
+public record EntryQuery(LocalDate von, LocalDate bis, String kategorie, String suche) {
+
+    public static final EntryQuery ALL = new EntryQuery(null, null, null);
+
+    public EntryQuery(LocalDate von, LocalDate bis, String kategorie) {
+        this(von, bis, kategorie, null);
+    }
+
+    /**
+     * {@summary Baut den Filter aus den Werten der Filterleiste.}
+     * @param mode Auswahl der Saldo-Combo-Box ("Alle", "Einnahmen", "Ausgaben")
+     */
+    public static EntryQuery of(LocalDate von, LocalDate bis, String mode) {
+        return of(von, bis, mode, null);
+    }
+
+    /**
+     * {@summary Wie {@link #of(LocalDate, LocalDate, String)}, zusätzlich mit Suchtext.}
+     * @param text Eingabe des Suchfelds; leer oder nur Satzzeichen bedeutet keine Suche
+     */
+    public static EntryQuery of(LocalDate von, LocalDate bis, String mode, String text) {
+        String kat = ("Einnahmen".equals(mode) || "Ausgaben".equals(mode)) ? mode : null;
+        String suche = text == null || match(text).isEmpty() ? null : text.strip();
+        return new EntryQuery(von, bis, kat, suche);
+    }
+
+    /**
+     * {@summary Übersetzt Suchtext in einen FTS5-Ausdruck: jedes Wort als Präfix, alle per AND.}
+     * Anführungszeichen werden entfernt, damit Eingaben die Syntax nicht brechen können.
+     */
+    static String match(String text) {
+        StringBuilder sb = new StringBuilder();
+        for (String word : text.replace('"', ' ').strip().split("\\s+")) {
+            if (word.chars().noneMatch(Character::isLetterOrDigit)) continue;
+            if (!sb.isEmpty()) sb.append(" AND ");
+            sb.append('"').append(word).append("\"*");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * {@summary Liefert die WHERE-Klausel inklusive zusätzlicher Bedingungen.}
+     * @param extra weitere, mit AND verknüpfte Bedingungen (z. B. Keyset)
+     * @return {@code " WHERE ..."} oder ein Leerzeichen, wenn nichts einschränkt
+     */
+    String where(String... extra) {
+        List<String> parts = new ArrayList<>();
+        if (kategorie != null) parts.add("kategorie = ?");
+        if (von != null) parts.add("datum >= ?");
+        if (bis != null) parts.add("datum <= ?");
+        if (suche != null) parts.add("id IN (SELECT rowid FROM entry_fts WHERE entry_fts MATCH ?)");
+        parts.addAll(List.of(extra));
+        return parts.isEmpty() ? " " : " WHERE " + String.join(" AND ", parts) + " ";
+    }
+
+    /**
+     * {@summary Setzt die Parameter der WHERE-Klausel in derselben Reihenfolge wie {@link #where}.}
+     * @return nächster freier Parameterindex
+     */
+    int bind(PreparedStatement ps, int index) throws SQLException {
+        if (kategorie != null) ps.setString(index++, kategorie);
+        if (von != null) ps.setLong(index++, von.toEpochDay());
+        if (bis != null) ps.setLong(index++, bis.toEpochDay());
+        if (suche != null) ps.setString(index++, match(suche));
+        return index;
+    }
+
+    /**
+     * {@summary Prüft, ob ein Eintrag (Epoch-Tag, Kategorie-Code) vom Filter erfasst wird.}
+     * Suchbegriffe werden hier nicht geprüft, das kann nur der Volltextindex.
+     */
+    boolean matches(int epochDay, byte kategorieCode) {
+        if (kategorie != null && LedgerPage.code(kategorie) != kategorieCode) return false;
+        if (von != null && epochDay < von.toEpochDay()) return false;
+        return bis == null || epochDay <= bis.toEpochDay();
+    }
+}
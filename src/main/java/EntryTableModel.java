@@ -0,0 +1,366 @@
+import javax.swing.table.AbstractTableModel;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * {@summary Tabellenmodell, das die Einträge seitenweise und erst bei Bedarf lädt.}
+ * Die Zeilenanzahl wird per COUNT im Hintergrund ermittelt. Seiten werden per Keyset auf
+ * (datum, id) von der Nachbarseite aus geholt, in einem begrenzten LRU-Cache gehalten und in
+ * Scrollrichtung vorausgeladen. Alle Abfragen laufen über {@link AsyncDb}; noch nicht geladene
+ * Zellen zeigen einen Platzhalter, fertige Seiten werden einzeln an die Tabelle gemeldet.
+ * Neu gespeicherte Buchungen werden über {@link #entryAdded} als einzelne Zeile eingefügt.
+ * Zeilen liegen spaltenweise als Primitive in {@link LedgerPage}s; {@link #getValueAt} liefert
+ * die ID als {@code Long}, das Datum als Epoch-Tag ({@code Integer}) und für den Betrag nur
+ * {@link AmountCellRenderer#CENTS}; den Betrag selbst liest der Renderer über {@link #cents}.
+ * Formatiert wird erst vom Renderer der Tabelle. Alle Zugriffe auf den Zustand erfolgen auf dem EDT.
+ * Ein abgelöstes Modell kann im {@link ViewCache} liegen und später weiterverwendet werden.
+ */
+public class EntryTableModel extends AbstractTableModel implements AmountCellRenderer.Amounts {
+
+    private static final long serialVersionUID = 1L;
+
+    static final String[] COLUMNS = {"ID", "Beleg", "Datum", "Kategorie", "Beschreibung", "Betrag (€)"};
+    static final int COL_DATUM = 2;
+    static final int COL_BETRAG = 5;
+    static final String LOADING = "…";
+
+    static final int PAGE_SIZE = 200;
+    static final int MAX_PAGES = 50;
+    // grobe Schätzung je geladener Zeile: Spalten-Arrays plus Beleg- und Beschreibungstext
+    private static final int ROW_BYTES = 160;
+
+    private final EntryQuery query;
+    private int rowCount;
+    private boolean cancelled;
+    private final Map<Integer, LedgerPage> pages = new LinkedHashMap<>(MAX_PAGES, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, LedgerPage> eldest) {
+            if (size() <= MAX_PAGES) return false;
+            firstKeys.remove(eldest.getKey());
+            lastKeys.remove(eldest.getKey());
+            return true;
+        }
+    };
+    // Randschlüssel der geladenen Seiten, damit Nachbarseiten per Keyset statt OFFSET kommen;
+    // sie werden mit ihrer Seite verdrängt
+    private final Map<Integer, DbLite.EntryKey> firstKeys = new HashMap<>();
+    private final Map<Integer, DbLite.EntryKey> lastKeys = new HashMap<>();
+    private final Map<Integer, CompletableFuture<LedgerPage>> pending = new HashMap<>();
+    private final CompletableFuture<DbLite.EntryCount> counting;
+    private int lastPage = -1;
+    // höchste ID, die im Modell schon enthalten ist; ältere Meldungen sind damit erledigt
+    private long watermark = -1;
+    // Obergrenze der Seitenabfragen bis zur Zählung: Stand des Schnappschusses
+    private long seedMaxId = Long.MAX_VALUE;
+    private final ArrayDeque<Buchung> inbox = new ArrayDeque<>();
+    private boolean positioning;
+    // Saldo dieses Filters, solange keine Buchung dazukommt; null = unbekannt
+    private Long saldo;
+
+    /**
+     * {@summary Erstellt das (noch leere) Modell für den Filter und startet die Zählung.}
+     * @param query   Filter, dessen Treffer angezeigt werden
+     * @param onReady wird auf dem EDT aufgerufen, sobald die Zeilenanzahl bekannt ist
+     * @param onError wird auf dem EDT mit der Fehlerursache aufgerufen
+     */
+    public EntryTableModel(EntryQuery query, Runnable onReady, Consumer<Throwable> onError) {
+        this(query, null, onReady, onError);
+    }
+
+    /**
+     * {@summary Wie {@link #EntryTableModel(EntryQuery, Runnable, Consumer)}, zeigt aber sofort die Zeilen eines Schnappschusses.}
+     * Bis zur Zählung gelten Zeilenanzahl und Seiten des Schnappschusses. Ergibt die Zählung
+     * dieselbe Anzahl und höchste ID, ist seither nichts dazugekommen und alles bleibt stehen;
+     * sonst werden die Seiten verworfen und wie gewohnt nachgeladen.
+     * @param seed Ansicht aus {@link WarmStart} für denselben Filter oder {@code null}
+     */
+    EntryTableModel(EntryQuery query, WarmStart.View seed, Runnable onReady, Consumer<Throwable> onError) {
+        this.query = query;
+        if (seed != null) {
+            rowCount = seed.rows();
+            seedMaxId = seed.maxId();
+            seed.pages().forEach(this::install);
+        }
+        counting = AsyncDb.supply(() -> DbLite.countEntries(query));
+        AsyncDb.onEdt(counting, count -> {
+            if (cancelled) return;
+            watermark = count.maxId();
+            if (seed == null) {
+                rowCount = count.rows();
+                if (rowCount > 0) fireTableRowsInserted(0, rowCount - 1);
+            } else if (count.rows() == seed.rows() && count.maxId() == seed.maxId()) {
+                if (seed.saldo() != null) saldo = seed.saldo();
+            } else {
+                for (CompletableFuture<LedgerPage> f : pending.values()) f.cancel(false);
+                pending.clear();
+                pages.clear();
+                firstKeys.clear();
+                lastKeys.clear();
+                rowCount = count.rows();
+                fireTableDataChanged();
+            }
+            onReady.run();
+            drainInbox();
+        }, onError);
+    }
+
+    public EntryQuery getQuery() {
+        return query;
+    }
+
+    /**
+     * {@summary Bricht alle noch offenen Abfragen dieses Modells ab.}
+     * Wird aufgerufen, wenn ein neuer Filter das Modell ablöst.
+     */
+    public void cancel() {
+        cancelled = true;
+        counting.cancel(false);
+        for (CompletableFuture<LedgerPage> f : pending.values()) f.cancel(false);
+        pending.clear();
+    }
+
+    /**
+     * {@summary Ob das Modell gezählt ist und keine Buchung mehr einzuordnen hat.}
+     * Nur dann gibt sein Inhalt den Filter vollständig wieder.
+     */
+    boolean isSettled() {
+        return !cancelled && watermark >= 0 && inbox.isEmpty() && !positioning;
+    }
+
+    /**
+     * {@summary Nimmt ein abgebrochenes, vollständiges Modell wieder in Betrieb.}
+     * Geladene Seiten bleiben erhalten, fehlende werden wie gewohnt nachgeladen.
+     */
+    void resume() {
+        cancelled = false;
+    }
+
+    /** Geschätzter Speicherbedarf der geladenen Seiten in Bytes. */
+    long estimatedBytes() {
+        long rows = 0;
+        for (LedgerPage p : pages.values()) rows += p.size();
+        return 256 + rows * ROW_BYTES;
+    }
+
+    /** Zuletzt gemerkter Saldo dieses Filters oder {@code null}. */
+    Long knownSaldo() {
+        return saldo;
+    }
+
+    void rememberSaldo(long cents) {
+        saldo = cents;
+    }
+
+    /**
+     * {@summary Hält die Seiten mit den sichtbaren Zeilen für {@link WarmStart} fest.}
+     * @param top    erste sichtbare Zeile
+     * @param bottom letzte sichtbare Zeile
+     * @param shown  angezeigter Saldo in Cent
+     * @return die Ansicht oder {@code null}, solange das Modell nicht vollständig ist
+     */
+    WarmStart.View view(int top, int bottom, Long shown) {
+        if (!isSettled() || rowCount == 0) return null;
+        Map<Integer, LedgerPage> visible = new LinkedHashMap<>();
+        for (int p = Math.max(0, top) / PAGE_SIZE; p <= Math.min(bottom, rowCount - 1) / PAGE_SIZE; p++) {
+            LedgerPage page = pages.get(p);
+            if (page != null) visible.put(p, page);
+        }
+        return new WarmStart.View(query, rowCount, watermark, shown, top, visible);
+    }
+
+    /**
+     * {@summary Übernimmt eine neu gespeicherte Buchung, ohne das Modell neu zu laden.}
+     * Passt sie zum Filter, wird genau eine Zeile an ihrer Position in (datum, id) eingefügt.
+     * Liegt sie hinter der letzten geladenen Zeile, ist keine Abfrage nötig; sonst wird ihre
+     * Position per Index-COUNT ermittelt. Meldungen werden streng der Reihe nach verarbeitet.
+     * Muss auf dem EDT aufgerufen werden.
+     */
+    public void entryAdded(Buchung b) {
+        if (cancelled || !query.matches((int) b.datum().toEpochDay(), LedgerPage.code(b.kategorie()))) return;
+        inbox.add(b);
+        drainInbox();
+    }
+
+    private void drainInbox() {
+        // solange gezählt wird, ist unklar, welche Buchungen schon enthalten sind
+        while (!positioning && !inbox.isEmpty() && watermark >= 0 && !cancelled) {
+            Buchung b = inbox.peek();
+            if (b.id() <= watermark) {
+                inbox.poll();
+                continue;
+            }
+            DbLite.EntryKey key = new DbLite.EntryKey((int) b.datum().toEpochDay(), b.id());
+            // ob Suchbegriffe passen, weiß nur der Volltextindex
+            boolean search = query.suche() != null;
+            int pos = search ? -1 : knownPosition(key);
+            if (pos >= 0) {
+                inbox.poll();
+                insertAt(pos, b);
+                continue;
+            }
+            positioning = true;
+            AsyncDb.onEdt(AsyncDb.supply(() -> search && !DbLite.matches(query, b.id())
+                    ? -1 : DbLite.countBefore(query, key, b.id())), p -> {
+                positioning = false;
+                inbox.poll();
+                if (cancelled) return;
+                if (p >= 0) insertAt(p, b);
+                drainInbox();
+            }, ex -> {
+                positioning = false;
+                inbox.clear();
+            });
+            return;
+        }
+    }
+
+    /**
+     * {@summary Position einer neuen Zeile, falls sie ohne Abfrage feststeht, sonst -1.}
+     */
+    private int knownPosition(DbLite.EntryKey key) {
+        if (rowCount == 0) return 0;
+        int last = (rowCount - 1) / PAGE_SIZE;
+        DbLite.EntryKey lastKey = lastKeys.get(last);
+        if (pages.containsKey(last) && lastKey != null && compare(lastKey, key) < 0) return rowCount;
+        DbLite.EntryKey firstKey = firstKeys.get(0);
+        if (pages.containsKey(0) && firstKey != null && compare(key, firstKey) < 0) return 0;
+        return -1;
+    }
+
+    private void insertAt(int pos, Buchung b) {
+        int p = pos / PAGE_SIZE;
+        LedgerPage page = pages.get(p);
+        if (page == null && pos == rowCount && pos % PAGE_SIZE == 0) {
+            page = new LedgerPage(8);   // neue letzte Seite, ihr einziger Inhalt ist diese Zeile
+        }
+        // alle folgenden Seiten verschieben sich um eine Zeile
+        pages.keySet().removeIf(k -> k > p);
+        firstKeys.keySet().removeIf(k -> k > p);
+        lastKeys.keySet().removeIf(k -> k > p);
+        pending.entrySet().removeIf(e -> {
+            if (e.getKey() < p) return false;
+            e.getValue().cancel(false);
+            return true;
+        });
+        if (page != null) {
+            page.insert(pos - p * PAGE_SIZE, b.id(), (int) b.datum().toEpochDay(), b.belegnr(),
+                    LedgerPage.code(b.kategorie()), b.beschreibung(), b.betragCents());
+            page.truncate(PAGE_SIZE);
+            install(p, page);
+        } else {
+            pages.remove(p);
+            firstKeys.remove(p);
+            lastKeys.remove(p);
+        }
+        watermark = b.id();
+        saldo = null;
+        rowCount++;
+        fireTableRowsInserted(pos, pos);
+    }
+
+    private static int compare(DbLite.EntryKey a, DbLite.EntryKey b) {
+        int c = Integer.compare(a.epochDay(), b.epochDay());
+        return c != 0 ? c : Long.compare(a.id(), b.id());
+    }
+
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMNS.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMNS[column];
+    }
+
+    @Override
+    public boolean isCellEditable(int r, int c) {
+        return false;
+    }
+
+    @Override
+    public Object getValueAt(int row, int col) {
+        int p = row / PAGE_SIZE;
+        LedgerPage page = pages.get(p);
+        if (page == null) request(p);
+        prefetch(p);
+        if (page == null) return LOADING;
+        int i = row - p * PAGE_SIZE;
+        if (i >= page.size()) return null;
+        return switch (col) {
+            case 0 -> page.id(i);
+            case 1 -> page.beleg(i);
+            case COL_DATUM -> page.day(i);
+            case 3 -> LedgerPage.kategorie(page.kategorie(i));
+            case 4 -> page.beschreibung(i);
+            case COL_BETRAG -> AmountCellRenderer.CENTS;
+            default -> null;
+        };
+    }
+
+    /**
+     * {@summary Liefert den Betrag einer geladenen Zeile, ohne ihn zu boxen.}
+     * Gilt nur für Zeilen, für die {@link #getValueAt} gerade {@link AmountCellRenderer#CENTS} geliefert hat.
+     */
+    @Override
+    public long cents(int row, int col) {
+        int p = row / PAGE_SIZE;
+        return pages.get(p).cents(row - p * PAGE_SIZE);
+    }
+
+    /**
+     * {@summary Lädt die Nachbarseite in Scrollrichtung vorab.}
+     * @param p gerade gelesene Seite
+     */
+    private void prefetch(int p) {
+        if (p == lastPage) return;
+        int next = p + (p > lastPage ? 1 : -1);
+        lastPage = p;
+        if (next >= 0 && next * PAGE_SIZE < rowCount) request(next);
+    }
+
+    /**
+     * {@summary Fordert eine Seite im Hintergrund an, falls sie weder geladen noch angefragt ist.}
+     * Nach dem Eintreffen werden nur die Zeilen dieser Seite neu gezeichnet.
+     */
+    private void request(int p) {
+        if (cancelled || pages.containsKey(p) || pending.containsKey(p)) return;
+
+        DbLite.EntryKey after = lastKeys.get(p - 1);
+        DbLite.EntryKey before = firstKeys.get(p + 1);
+        int from = p * PAGE_SIZE;
+        int n = Math.min(PAGE_SIZE, rowCount - from);
+        int total = rowCount;
+        // neuere Zeilen kommen über entryAdded und stünden sonst doppelt in der Tabelle
+        long maxId = watermark >= 0 ? watermark : seedMaxId;
+        CompletableFuture<LedgerPage> f = AsyncDb.supply(() -> {
+            if (after != null) return DbLite.pageAfter(query, after, n, maxId);
+            if (before != null) return DbLite.pageBefore(query, before, n, maxId);
+            return DbLite.pageAt(query, from, n, total, maxId);
+        });
+        pending.put(p, f);
+        AsyncDb.onEdt(f, page -> {
+            pending.remove(p);
+            if (cancelled) return;
+            install(p, page);
+            fireTableRowsUpdated(from, Math.min(from + PAGE_SIZE, rowCount) - 1);
+        }, ex -> pending.remove(p));
+    }
+
+    private void install(int p, LedgerPage page) {
+        pages.put(p, page);
+        if (page.size() == 0) {
+            firstKeys.remove(p);
+            lastKeys.remove(p);
+            return;
+        }
+        firstKeys.put(p, page.key(0));
+        lastKeys.put(p, page.key(page.size() - 1));
+    }
+}
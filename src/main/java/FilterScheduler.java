@@ -0,0 +1,56 @@
+import javax.swing.*;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * {@summary Fasst Filteränderungen zusammen: höchstens eine Auswertung pro Frame, keine ohne Änderung.}
+ * Eine Benutzeraktion löst oft mehrere Ereignisse aus (ein DatePicker begrenzt den anderen
+ * und korrigiert dessen Datum, die Combo-Box meldet Ab- und Anwahl). {@link #request} merkt
+ * sich nur, dass sich etwas geändert hat; mit dem nächsten Frame wird der Filter einmal aus den
+ * Eingabefeldern gelesen und nur dann angewandt, wenn er sich vom zuletzt angewandten
+ * unterscheidet. Eine noch laufende Auswertung bricht der Empfänger beim nächsten Anwenden ab.
+ * Alle Methoden laufen auf dem EDT.
+ */
+final class FilterScheduler {
+
+    private static final int FRAME_MS = 16;
+
+    private final Supplier<EntryQuery> state;
+    private final Consumer<EntryQuery> apply;
+    private final Timer frame;
+    private EntryQuery applied;
+
+    /**
+     * @param state liest den aktuellen Filter aus den Eingabefeldern
+     * @param apply wendet einen geänderten Filter an
+     */
+    FilterScheduler(Supplier<EntryQuery> state, Consumer<EntryQuery> apply) {
+        this.state = state;
+        this.apply = apply;
+        this.frame = new Timer(FRAME_MS, e -> run(false));
+        frame.setRepeats(false);
+    }
+
+    /** Meldet eine Änderung; ausgewertet wird mit dem nächsten Frame. */
+    void request() {
+        if (!frame.isRunning()) frame.start();
+    }
+
+    /** Wendet den aktuellen Filter sofort an, auch wenn er sich nicht geändert hat (z. B. nach einem Import). */
+    void applyNow() {
+        frame.stop();
+        run(true);
+    }
+
+    /** Merkt sich einen Filter, der schon angezeigt wird (z. B. aus dem Schnappschuss), als angewandt. */
+    void assume(EntryQuery q) {
+        applied = q;
+    }
+
+    private void run(boolean force) {
+        EntryQuery q = state.get();
+        if (!force && q.equals(applied)) return;
+        applied = q;
+        apply.accept(q);
+    }
+}
@@ -0,0 +1,166 @@
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * {@summary Sammelt Einzelbuchungen aus beliebigen Threads und schreibt sie gruppenweise.}
+ * Aufrufer stellen Buchungen in eine lock-freie Warteschlange und erhalten sofort ein
+ * {@link CompletableFuture} mit der späteren ID. Ein einziger Schreib-Thread nimmt alles, was
+ * ansteht (höchstens {@code batchSize}; war die letzte Gruppe größer als eins, wartet er nach dem
+ * ersten Eintrag bis zu {@code maxLatency} auf weitere), und schreibt es in einer Transaktion: ein fsync für die
+ * ganze Gruppe statt einem pro Buchung. Ist die Warteschlange voll, blockiert {@link #submit}
+ * bis wieder Platz ist. Wird eine Gruppe mit einer {@link SQLException} zurückgerollt, wird sie
+ * einzeln wiederholt, damit nur die fehlerhafte Buchung ihren Fehler bekommt.
+ * <p>
+ * Die Futures werden auf dem Schreib-Thread abgeschlossen; abhängige Stufen sollten daher
+ * nicht blockieren.
+ */
+final class IngestQueue implements AutoCloseable {
+
+    /** Schreibt eine Gruppe in einer Transaktion und liefert die IDs in derselben Reihenfolge. */
+    @FunctionalInterface
+    interface GroupWriter {
+        long[] write(List<Buchung> rows) throws SQLException;
+    }
+
+    private record Pending(Buchung row, CompletableFuture<Long> id) {}
+
+    private final Queue<Pending> queue = new ConcurrentLinkedQueue<>();
+    private final Semaphore slots;
+    private final int batchSize;
+    private final long maxLatencyNanos;
+    private final GroupWriter writer;
+    private final Thread thread;
+    private volatile boolean closed;
+
+    /**
+     * @param capacity   Einträge, die höchstens auf den Schreib-Thread warten
+     * @param batchSize  Einträge pro Transaktion
+     * @param maxLatency wie lange eine angefangene Gruppe auf weitere Einträge wartet (µs)
+     */
+    IngestQueue(int capacity, int batchSize, long maxLatency, GroupWriter writer) {
+        this.slots = new Semaphore(capacity);
+        this.batchSize = batchSize;
+        this.maxLatencyNanos = TimeUnit.MICROSECONDS.toNanos(maxLatency);
+        this.writer = writer;
+        this.thread = new Thread(this::run, "db-ingest");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * {@summary Stellt eine Buchung zum Schreiben ein; ihre ID wird ignoriert.}
+     * Blockiert, solange die Warteschlange voll ist.
+     * @return wird mit der vergebenen ID abgeschlossen, sobald die Gruppe committet ist
+     */
+    CompletableFuture<Long> submit(Buchung row) {
+        CompletableFuture<Long> id = new CompletableFuture<>();
+        if (closed) {
+            id.completeExceptionally(new IllegalStateException("Ingest queue is closed"));
+            return id;
+        }
+        long t0 = System.nanoTime();
+        try {
+            slots.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            id.completeExceptionally(e);
+            return id;
+        }
+        Metrics.record("db.wait.ingest", t0);
+        Pending p = new Pending(row, id);
+        queue.offer(p);
+        LockSupport.unpark(thread);
+        // close() may have emptied the queue between the check above and the offer
+        if (closed && queue.remove(p)) {
+            slots.release();
+            id.completeExceptionally(new IllegalStateException("Ingest queue is closed"));
+        }
+        return id;
+    }
+
+    /**
+     * {@summary Schreibt alles Eingestellte und beendet den Schreib-Thread.}
+     */
+    @Override
+    public void close() {
+        if (closed) return;
+        closed = true;
+        LockSupport.unpark(thread);
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // nach dem Ende des Threads noch eingestellt
+        Pending p;
+        while ((p = queue.poll()) != null) {
+            slots.release();   // for submits still waiting for a slot
+            p.id().completeExceptionally(new IllegalStateException("Ingest queue is closed"));
+        }
+    }
+
+    private void run() {
+        List<Pending> batch = new ArrayList<>(batchSize);
+        boolean contended = false;
+        while (true) {
+            Pending first = queue.poll();
+            if (first == null) {
+                if (closed) return;
+                LockSupport.park(this);
+                continue;
+            }
+            batch.add(first);
+            // a lone caller is not kept waiting; lingering only pays off while several write
+            long deadline = System.nanoTime() + (contended ? maxLatencyNanos : 0);
+            while (batch.size() < batchSize) {
+                Pending p = queue.poll();
+                if (p != null) {
+                    batch.add(p);
+                    continue;
+                }
+                long left = deadline - System.nanoTime();
+                if (left <= 0 || closed) break;
+                LockSupport.parkNanos(this, left);
+            }
+            slots.release(batch.size());
+            contended = batch.size() > 1;
+            flush(batch);
+            batch.clear();
+        }
+    }
+
+    private void flush(List<Pending> batch) {
+        List<Buchung> rows = new ArrayList<>(batch.size());
+        for (Pending p : batch) rows.add(p.row());
+        try {
+            complete(batch, writer.write(rows));
+        } catch (SQLException e) {
+            // rolled back: retry one by one so only the bad row fails
+            if (batch.size() == 1) {
+                batch.get(0).id().completeExceptionally(e);
+                return;
+            }
+            for (Pending p : batch) {
+                try {
+                    complete(List.of(p), writer.write(List.of(p.row())));
+                } catch (SQLException | RuntimeException single) {
+                    p.id().completeExceptionally(single);
+                }
+            }
+        } catch (RuntimeException e) {
+            // may have failed after the commit, a retry could write rows twice
+            for (Pending p : batch) p.id().completeExceptionally(e);
+        }
+    }
+
+    private static void complete(List<Pending> batch, long[] ids) {
+        for (int i = 0; i < ids.length; i++) batch.get(i).id().complete(ids[i]);
+    }
+}
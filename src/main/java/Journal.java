@@ -0,0 +1,404 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32C;
+
+/**
+ * {@summary Append-only Journal vor der Tabelle {@code entry}: Buchungen sind nach dem Anhängen sicher, geschrieben wird später.}
+ * Jede Buchung wird als Datensatz mit Prüfsumme an ein memory-mapped Segment
+ * ({@code app.db.journal/00000001.seg}, je 4 MiB) angehängt und nur dieser Bereich auf die
+ * Platte gezwungen; danach gilt sie als gespeichert. Ein eigener Thread schreibt die Datensätze
+ * in Gruppen über die normale Schreib-Verbindung in die Datenbank und vermerkt die Nummer des
+ * letzten Datensatzes in derselben Transaktion; jeder Datensatz wird so genau einmal
+ * übernommen. Vollständig übernommene Segmente werden gelöscht. Schlägt das Schreiben fehl,
+ * bleiben die Datensätze liegen und werden mit wachsendem Abstand erneut versucht; verworfen wird
+ * nur eine Buchung, deren Geschäftsjahr inzwischen abgeschlossen ist.
+ * <p>
+ * Beim Öffnen werden alle Segmente geprüft: ein nach einem Absturz halb geschriebener Datensatz
+ * am Ende fällt an der Prüfsumme auf und wird verworfen (er war nie bestätigt), alle gültigen,
+ * noch nicht übernommenen werden mit {@link #recover} nachgetragen.
+ * <p>
+ * Satzformat: {@code int len, int crc32c, long seq, int epochDay, long cents, str belegnr,
+ * str kategorie, str beschreibung}; {@code str} ist {@code int} Länge ({@code -1} für null) plus
+ * UTF-8, {@code len} zählt die Bytes ab {@code seq}, die Prüfsumme deckt genau diese ab.
+ */
+final class Journal implements AutoCloseable {
+
+    /** Übernimmt eine Gruppe in einer Transaktion und vermerkt dabei {@code lastSeq}. */
+    @FunctionalInterface
+    interface Applier {
+        void apply(List<Buchung> rows, long lastSeq) throws SQLException;
+    }
+
+    private static final Logger LOG = Logger.getLogger("Buchhaltung.db");
+
+    private static final int MAGIC = 0x42484A4C;   // "BHJL"
+    private static final int VERSION = 1;
+    private static final int HEADER = 16;          // magic, version, segment number
+    private static final int RECORD_HEAD = 8;      // len, crc
+    private static final int SEGMENT_BYTES = 4 << 20;
+    // wait between attempts while applying fails
+    private static final long MIN_BACKOFF_NANOS = 100_000_000L, MAX_BACKOFF_NANOS = 30_000_000_000L;
+
+    private final Path dir;
+    private final int batchSize;
+    private final Applier applier;
+    private final List<Segment> segments = new CopyOnWriteArrayList<>();
+    private final CRC32C crc = new CRC32C();          // guarded by this (append)
+    private long nextSeq;                             // guarded by this
+    private long applied;                             // seq of the last applied record, applier thread only
+    private Thread thread;
+    private volatile boolean closed;
+
+    /** Ein Segment mit seinem Mapping; {@code end} ist das Ende des letzten gültigen Datensatzes. */
+    private static final class Segment {
+        final long number;
+        final Path file;
+        final FileChannel channel;
+        final MappedByteBuffer map;
+        volatile int end = HEADER;
+        int read = HEADER;      // applier cursor
+
+        Segment(long number, Path file, FileChannel channel, MappedByteBuffer map) {
+            this.number = number;
+            this.file = file;
+            this.channel = channel;
+            this.map = map;
+        }
+    }
+
+    /**
+     * {@summary Öffnet das Journal und prüft vorhandene Segmente; übernommen wird noch nichts.}
+     * @param dir        Verzeichnis der Segmente, wird bei Bedarf angelegt
+     * @param appliedSeq Nummer des letzten bereits übernommenen Datensatzes laut Datenbank
+     * @param batchSize  Datensätze pro Transaktion
+     */
+    Journal(Path dir, long appliedSeq, int batchSize, Applier applier) throws IOException {
+        this.dir = dir;
+        this.batchSize = batchSize;
+        this.applier = applier;
+        this.applied = appliedSeq;
+        if (!Files.isDirectory(dir)) {
+            Files.createDirectories(dir);
+            syncDirectory(dir.toAbsolutePath().getParent());
+        }
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(dir, "*.seg")) {
+            for (Path p : ds) files.add(p);
+        }
+        files.sort(null);
+        long last = appliedSeq;
+        for (Path f : files) {
+            Segment s = map(f, Long.parseLong(f.getFileName().toString().replace(".seg", "")), false);
+            last = Math.max(last, scan(s));
+            segments.add(s);
+        }
+        nextSeq = last + 1;
+        if (segments.isEmpty()) segments.add(map(segmentFile(1), 1, true));
+    }
+
+    /**
+     * {@summary Hängt eine Buchung an und kehrt zurück, sobald sie auf der Platte ist.}
+     * @return Nummer des Datensatzes
+     * @throws IOException wenn das Journal nicht geschrieben werden kann; die Buchung ist dann nicht gespeichert
+     */
+    synchronized long append(Buchung b) throws IOException {
+        if (closed) throw new IOException("Journal is closed");
+        long t0 = System.nanoTime();
+        byte[] beleg = bytes(b.belegnr()), kat = bytes(b.kategorie()), text = bytes(b.beschreibung());
+        int len = 8 + 4 + 8 + 3 * 4 + length(beleg) + length(kat) + length(text);
+        if (HEADER + RECORD_HEAD + len > SEGMENT_BYTES) throw new IOException("Entry too large for the journal");
+        Segment s = segments.get(segments.size() - 1);
+        if (s.end + RECORD_HEAD + len > SEGMENT_BYTES) {
+            s = map(segmentFile(s.number + 1), s.number + 1, true);
+            segments.add(s);
+        }
+        long seq = nextSeq++;
+        ByteBuffer m = s.map;
+        int at = s.end, p = at + RECORD_HEAD;
+        m.putLong(p, seq);
+        m.putInt(p + 8, (int) b.datum().toEpochDay());
+        m.putLong(p + 12, b.betragCents());
+        p = put(m, p + 20, beleg);
+        p = put(m, p, kat);
+        put(m, p, text);
+        crc.reset();
+        crc.update(m.slice(at + RECORD_HEAD, len));
+        m.putInt(at + 4, (int) crc.getValue());
+        m.putInt(at, len);
+        s.map.force(at, RECORD_HEAD + len);
+        s.end = at + RECORD_HEAD + len;
+        Metrics.record("db.journal.append", t0);
+        if (thread != null) LockSupport.unpark(thread);
+        return seq;
+    }
+
+    /**
+     * {@summary Trägt alle noch nicht übernommenen Datensätze im aufrufenden Thread nach.}
+     * Für den Start, bevor Abfragen laufen.
+     * @return Anzahl nachgetragener Buchungen
+     */
+    long recover() throws SQLException {
+        long before = applied, n = 0;
+        for (int got; (got = applyBatch()) > 0; ) n += got;
+        if (n > 0) LOG.info("Journal recovery: applied " + n + " entries after #" + before);
+        return n;
+    }
+
+    /** Startet den Thread, der neue Datensätze laufend übernimmt. */
+    synchronized void start() {
+        thread = new Thread(this::run, "db-journal");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * {@summary Übernimmt alles Angehängte, beendet den Thread und gibt die Segmente frei.}
+     * Sind alle Datensätze übernommen, bleiben keine Segmentdateien zurück.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) return;
+            closed = true;
+        }
+        if (thread != null) {
+            LockSupport.unpark(thread);
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        try {
+            recover();
+        } catch (SQLException | RuntimeException e) {
+            LOG.log(Level.WARNING, "Journal not fully applied, the rest follows on the next start", e);
+        }
+        for (Segment s : segments) {
+            boolean done = s.read >= s.end;
+            release(s, done);
+        }
+        segments.clear();
+    }
+
+    private void run() {
+        long backoff = 0;
+        while (true) {
+            int n;
+            long before = applied;
+            try {
+                n = applyBatch();
+                if (backoff > 0) LOG.info("Applying the journal works again");
+                backoff = 0;
+            } catch (SQLException | RuntimeException e) {
+                // e.g. the database is busy or the disk full; the records stay and are retried
+                if (backoff == 0) LOG.log(Level.SEVERE, "Applying the journal failed, retrying", e);
+                if (applied > before) backoff = 0;   // got part of the way, not stuck
+                backoff = Math.min(Math.max(2 * backoff, MIN_BACKOFF_NANOS), MAX_BACKOFF_NANOS);
+                long until = System.nanoTime() + backoff;
+                // appends unpark this thread, the wait still lasts the full backoff
+                for (long left = backoff; left > 0 && !closed; left = until - System.nanoTime()) {
+                    LockSupport.parkNanos(this, left);
+                }
+                if (closed) return;
+                continue;
+            }
+            if (n > 0) continue;
+            if (closed) return;
+            LockSupport.park(this);
+        }
+    }
+
+    // reads up to batchSize records after the last applied one and applies them -> records read
+    private int applyBatch() throws SQLException {
+        List<Buchung> rows = new ArrayList<>(batchSize);
+        long lastSeq = applied;
+        for (Segment s : segments) {
+            int p = s.read, end = s.end;
+            while (p < end && rows.size() < batchSize) {
+                int len = s.map.getInt(p);
+                long seq = s.map.getLong(p + RECORD_HEAD);
+                if (seq > applied) {
+                    rows.add(decode(s.map, p + RECORD_HEAD));
+                    lastSeq = seq;
+                }
+                p += RECORD_HEAD + len;
+            }
+            if (rows.size() == batchSize) break;
+        }
+        if (lastSeq == applied) {
+            // only records applied before (recovery): step over them
+            advance(applied);
+            dropApplied();
+            return 0;
+        }
+        long t0 = System.nanoTime();
+        apply(rows, lastSeq);
+        Metrics.record("db.journal.apply", t0);
+        advance(applied);
+        dropApplied();
+        return rows.size();
+    }
+
+    // applies rows with the consecutive numbers up to lastSeq; applied follows every commit, so a
+    // failure part way through leaves exactly the unwritten records for the retry
+    private void apply(List<Buchung> rows, long lastSeq) throws SQLException {
+        try {
+            applier.apply(rows, lastSeq);
+            applied = lastSeq;
+        } catch (SQLException e) {
+            if (rows.size() > 1) {
+                // rolled back: one by one, so a rejected record does not hold up the others
+                long first = lastSeq - rows.size() + 1;
+                for (int i = 0; i < rows.size(); i++) apply(List.of(rows.get(i)), first + i);
+                return;
+            }
+            // only a permanent rejection is skipped, anything else is retried
+            if (!(e instanceof DbLite.YearClosedException)) throw e;
+            LOG.log(Level.SEVERE, "Dropping journaled entry #" + lastSeq + " " + rows.get(0), e);
+            applier.apply(List.of(), lastSeq);
+            applied = lastSeq;
+        }
+    }
+
+    // moves the read cursors past every record up to seq
+    private void advance(long seq) {
+        for (Segment s : segments) {
+            int p = s.read;
+            while (p < s.end && s.map.getLong(p + RECORD_HEAD) <= seq) p += RECORD_HEAD + s.map.getInt(p);
+            s.read = p;
+            if (p < s.end) return;
+        }
+    }
+
+    // deletes fully applied segments except the one appended to
+    private void dropApplied() {
+        while (segments.size() > 1) {
+            Segment s = segments.get(0);
+            if (s.read < s.end) return;
+            segments.remove(0);
+            release(s, true);
+        }
+    }
+
+    // validates the records of a segment; a torn tail is cleared -> seq of the last valid record (or 0)
+    private long scan(Segment s) throws IOException {
+        MappedByteBuffer m = s.map;
+        if (m.getInt(0) != MAGIC || m.getInt(4) != VERSION) throw new IOException("Not a journal segment: " + s.file);
+        long last = 0;
+        int p = HEADER;
+        while (p + RECORD_HEAD <= SEGMENT_BYTES) {
+            int len = m.getInt(p);
+            if (len <= 0 || p + RECORD_HEAD + len > SEGMENT_BYTES) break;
+            crc.reset();
+            crc.update(m.slice(p + RECORD_HEAD, len));
+            if (m.getInt(p + 4) != (int) crc.getValue()) break;
+            last = m.getLong(p + RECORD_HEAD);
+            p += RECORD_HEAD + len;
+        }
+        if (p + RECORD_HEAD <= SEGMENT_BYTES && m.getInt(p) != 0) {
+            // a record that was being written when the process died; it was never confirmed
+            LOG.warning("Journal " + s.file + ": discarding torn record at offset " + p);
+            for (int i = p; i < SEGMENT_BYTES; i++) m.put(i, (byte) 0);
+            m.force();
+        }
+        s.end = p;
+        return last;
+    }
+
+    private Segment map(Path file, long number, boolean create) throws IOException {
+        FileChannel ch = create
+                ? FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)
+                : FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        MappedByteBuffer m = ch.map(FileChannel.MapMode.READ_WRITE, 0, SEGMENT_BYTES);
+        if (create) {
+            m.putInt(0, MAGIC).putInt(4, VERSION).putLong(8, number);
+            m.force();
+            ch.force(true);   // the new file itself must survive a crash
+            syncDirectory(dir);   // and its directory entry
+        }
+        return new Segment(number, file, ch, m);
+    }
+
+    // makes created names durable; Windows cannot open a directory as a channel and needs no sync
+    private static void syncDirectory(Path d) throws IOException {
+        try (FileChannel ch = FileChannel.open(d, StandardOpenOption.READ)) {
+            ch.force(true);
+        } catch (AccessDeniedException | UnsupportedOperationException e) {
+            LOG.fine("Cannot sync directory " + d + ": " + e);
+        }
+    }
+
+    private void release(Segment s, boolean delete) {
+        try {
+            s.channel.close();
+            // the mapping stays until collected; on Windows the delete then fails and is retried on the next start
+            if (delete) Files.deleteIfExists(s.file);
+        } catch (IOException e) {
+            LOG.fine("Could not remove journal segment " + s.file + ": " + e);
+        }
+    }
+
+    private Path segmentFile(long number) {
+        return dir.resolve(String.format("%08d.seg", number));
+    }
+
+    private static Buchung decode(ByteBuffer m, int p) {
+        int day = m.getInt(p + 8);
+        long cents = m.getLong(p + 12);
+        p += 20;
+        String beleg = string(m, p);
+        p += length(m, p);
+        String kat = string(m, p);
+        p += length(m, p);
+        String text = string(m, p);
+        return new Buchung(0, beleg, LocalDate.ofEpochDay(day), kat, text, cents);
+    }
+
+    private static byte[] bytes(String s) {
+        return s == null ? null : s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int length(byte[] b) {
+        return b == null ? 0 : b.length;
+    }
+
+    private static int put(ByteBuffer m, int p, byte[] b) {
+        if (b == null) {
+            m.putInt(p, -1);
+            return p + 4;
+        }
+        m.putInt(p, b.length);
+        m.put(p + 4, b);
+        return p + 4 + b.length;
+    }
+
+    private static String string(ByteBuffer m, int p) {
+        int n = m.getInt(p);
+        if (n < 0) return null;
+        byte[] b = new byte[n];
+        m.get(p + 4, b);
+        return new String(b, StandardCharsets.UTF_8);
+    }
+
+    // bytes a str field occupies at p
+    private static int length(ByteBuffer m, int p) {
+        return 4 + Math.max(0, m.getInt(p));
+    }
+}
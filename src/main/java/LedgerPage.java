@@ -0,0 +1,136 @@
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * {@summary Spaltenweise gespeicherter Ausschnitt des Journals.}
+ * IDs, Epoch-Tage, Cent-Beträge und Kategorie-Codes liegen in primitiven Arrays,
+ * Beleg und Beschreibung als Strings, wobei gleiche Texte innerhalb einer Seite eine Instanz
+ * teilen. Formatiert wird erst beim Zeichnen der Zelle; Filter und Saldo lesen die Primitive direkt.
+ */
+final class LedgerPage {
+
+    static final byte EINNAHMEN = 0;
+    static final byte AUSGABEN = 1;
+
+    // Code -> Kategoriename; unbekannte Kategorien aus älteren Daten bekommen einen neuen Code
+    private static final int DEDUPE = 16;   // Zweierpotenz
+
+    private static final List<String> KATEGORIEN = new CopyOnWriteArrayList<>(List.of("Einnahmen", "Ausgaben"));
+
+    private long[] ids;
+    private int[] days;
+    private long[] cents;
+    private byte[] kat;
+    private String[] beleg;
+    private String[] desc;
+    private int size;
+    // zuletzt gesehene Texte nach Hash; begrenzt und mit der Seite wieder frei, anders als String.intern
+    private final String[] recent = new String[DEDUPE];
+
+    LedgerPage(int capacity) {
+        ids = new long[capacity];
+        days = new int[capacity];
+        cents = new long[capacity];
+        kat = new byte[capacity];
+        beleg = new String[capacity];
+        desc = new String[capacity];
+    }
+
+    /**
+     * {@summary Code einer Kategorie; neue Namen werden fortlaufend vergeben.}
+     */
+    static byte code(String kategorie) {
+        int i = KATEGORIEN.indexOf(kategorie);
+        if (i >= 0) return (byte) i;
+        synchronized (KATEGORIEN) {
+            i = KATEGORIEN.indexOf(kategorie);
+            if (i < 0) {
+                if (KATEGORIEN.size() > Byte.MAX_VALUE) throw new IllegalStateException("Too many categories");
+                KATEGORIEN.add(kategorie);
+                i = KATEGORIEN.size() - 1;
+            }
+            return (byte) i;
+        }
+    }
+
+    static String kategorie(byte code) {
+        return KATEGORIEN.get(code);
+    }
+
+    void add(long id, int day, String belegnr, byte kategorie, String beschreibung, long betragCents) {
+        insert(size, id, day, belegnr, kategorie, beschreibung, betragCents);
+    }
+
+    /**
+     * {@summary Fügt eine Zeile an der Stelle ein und verschiebt die folgenden.}
+     */
+    void insert(int index, long id, int day, String belegnr, byte kategorie, String beschreibung, long betragCents) {
+        if (size == ids.length) grow();
+        int tail = size - index;
+        System.arraycopy(ids, index, ids, index + 1, tail);
+        System.arraycopy(days, index, days, index + 1, tail);
+        System.arraycopy(cents, index, cents, index + 1, tail);
+        System.arraycopy(kat, index, kat, index + 1, tail);
+        System.arraycopy(beleg, index, beleg, index + 1, tail);
+        System.arraycopy(desc, index, desc, index + 1, tail);
+        ids[index] = id;
+        days[index] = day;
+        cents[index] = betragCents;
+        kat[index] = kategorie;
+        beleg[index] = dedupe(belegnr);
+        desc[index] = dedupe(beschreibung);
+        size++;
+    }
+
+    /** Kehrt die Reihenfolge um (für rückwärts gelesene Seiten). */
+    void reverse() {
+        for (int i = 0, j = size - 1; i < j; i++, j--) {
+            long id = ids[i]; ids[i] = ids[j]; ids[j] = id;
+            int d = days[i]; days[i] = days[j]; days[j] = d;
+            long c = cents[i]; cents[i] = cents[j]; cents[j] = c;
+            byte k = kat[i]; kat[i] = kat[j]; kat[j] = k;
+            String b = beleg[i]; beleg[i] = beleg[j]; beleg[j] = b;
+            String s = desc[i]; desc[i] = desc[j]; desc[j] = s;
+        }
+    }
+
+    /** Kürzt auf die ersten {@code n} Zeilen. */
+    void truncate(int n) {
+        if (n >= size) return;
+        Arrays.fill(beleg, n, size, null);
+        Arrays.fill(desc, n, size, null);
+        size = n;
+    }
+
+    int size() { return size; }
+    long id(int i) { return ids[i]; }
+    int day(int i) { return days[i]; }
+    long cents(int i) { return cents[i]; }
+    byte kategorie(int i) { return kat[i]; }
+    String beleg(int i) { return beleg[i]; }
+    String beschreibung(int i) { return desc[i]; }
+
+    DbLite.EntryKey key(int i) {
+        return new DbLite.EntryKey(days[i], ids[i]);
+    }
+
+    private void grow() {
+        int n = Math.max(8, ids.length * 2);
+        ids = Arrays.copyOf(ids, n);
+        days = Arrays.copyOf(days, n);
+        cents = Arrays.copyOf(cents, n);
+        kat = Arrays.copyOf(kat, n);
+        beleg = Arrays.copyOf(beleg, n);
+        desc = Arrays.copyOf(desc, n);
+    }
+
+    private String dedupe(String s) {
+        if (s == null) return null;
+        int slot = s.hashCode() & (DEDUPE - 1);
+        String seen = recent[slot];
+        if (s.equals(seen)) return seen;
+        recent[slot] = s;
+        return s;
+    }
+}
@@ -1,17 +1,37 @@
 import javax.swing.*;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
 
 public class Main {
     public static void main(String[] args) {
-        DbLite.init();
+        long t0 = System.nanoTime();
+        // Schema-Prüfung und Saldo-Index laufen im Hintergrund; bis dahin zeigt das Fenster die letzte Ansicht
+        CompletableFuture<Void> db = DbLite.initAsync();
+        Runtime.getRuntime().addShutdownHook(new Thread(DbLite::shutdown, "db-shutdown"));
+        Path snapshot = WarmStart.fileFor(DbLite.defaultFile());
+        WarmStart.View warm = WarmStart.read(snapshot);
+        Metrics.registerMBeans();
+        EdtWatchdog.start(Long.getLong("buchhaltung.edt.stallMillis", 250));
+        long dump = Long.getLong("buchhaltung.metrics.logSeconds", 0);
+        if (dump > 0) Metrics.startLogDump(dump);
+        long backupMinutes = Long.getLong("buchhaltung.backup.intervalMinutes", 0);
+        if (backupMinutes > 0) DbLite.scheduleBackups(backupMinutes);
 
         SwingUtilities.invokeLater(() -> {
             try { UIManager.setLookAndFeel("javax.swing.plaf.nimbus.NimbusLookAndFeel"); } catch (Exception ignored) {}
             JFrame f = new JFrame("Buchhaltung");
             f.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
-            f.setContentPane(new BuchhaltungMainPage().getRootPnl());
+            BuchhaltungMainPage page = new BuchhaltungMainPage(warm, db);
+            f.setContentPane(page.getRootPnl());
+            f.addWindowListener(new WindowAdapter() {
+                @Override public void windowClosing(WindowEvent e) { page.writeWarmStart(snapshot); }
+            });
             f.pack();
             f.setLocationRelativeTo(null);
             f.setVisible(true);
+            SwingUtilities.invokeLater(() -> Metrics.record("ui.firstPaint", t0));
         });
     }
-}
\ No newline at end of file
+}
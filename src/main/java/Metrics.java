@@ -0,0 +1,185 @@
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+/**
+ * {@summary Laufzeitmessung: Latenz-Histogramme je Operation, per JMX und Log abrufbar.}
+ * Gemessen wird mit {@link System#nanoTime()}; ein Eintrag kostet ein paar atomare Additionen
+ * ohne Sperre und ohne Allokation, die Messung bleibt deshalb auch im Betrieb eingeschaltet.
+ * Die Histogramme haben logarithmische Klassen mit acht Unterteilungen je Zweierpotenz
+ * (höchstens 12,5 % Klassenbreite). Namen: {@code db.*} für {@link DbLite}, {@code ui.*}
+ * für die Oberfläche, {@code edt.*} für den {@link EdtWatchdog}.
+ */
+public final class Metrics {
+
+    private static final Logger LOG = Logger.getLogger("Buchhaltung.metrics");
+    private static final Map<String, Histogram> HISTOGRAMS = new ConcurrentHashMap<>();
+    private static volatile MBeanServer jmx;
+
+    private Metrics() {}
+
+    /** Histogramm zum Namen; wird beim ersten Zugriff angelegt. */
+    public static Histogram histogram(String name) {
+        Histogram h = HISTOGRAMS.get(name);
+        return h != null ? h : HISTOGRAMS.computeIfAbsent(name, Metrics::create);
+    }
+
+    /** Trägt die seit {@code startNanos} vergangene Zeit unter dem Namen ein. */
+    public static void record(String name, long startNanos) {
+        histogram(name).record(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * {@summary Meldet alle vorhandenen und künftigen Histogramme als MBeans an.}
+     * Objektname {@code Buchhaltung:type=Latency,name=<name>}, z. B. in JConsole sichtbar.
+     */
+    public static synchronized void registerMBeans() {
+        if (jmx != null) return;
+        jmx = ManagementFactory.getPlatformMBeanServer();
+        HISTOGRAMS.values().forEach(Metrics::register);
+    }
+
+    /**
+     * {@summary Schreibt alle Histogramme in festem Abstand ins Log (Level INFO).}
+     * @param periodSeconds Abstand in Sekunden
+     */
+    public static void startLogDump(long periodSeconds) {
+        ScheduledExecutorService s = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "metrics-log");
+            t.setDaemon(true);
+            return t;
+        });
+        s.scheduleAtFixedRate(() -> LOG.info(report()), periodSeconds, periodSeconds, TimeUnit.SECONDS);
+    }
+
+    /** Alle Histogramme als Tabelle (Millisekunden), nach Namen sortiert. */
+    public static String report() {
+        StringBuilder sb = new StringBuilder(String.format("%-24s %9s %9s %9s %9s %9s%n",
+                "operation", "count", "mean", "p50", "p99", "max"));
+        for (Map.Entry<String, Histogram> e : new TreeMap<>(HISTOGRAMS).entrySet()) {
+            Histogram h = e.getValue();
+            if (h.getCount() == 0) continue;
+            sb.append(String.format("%-24s %9d %9.2f %9.2f %9.2f %9.2f%n", e.getKey(), h.getCount(),
+                    h.getMeanMillis(), h.getP50Millis(), h.getP99Millis(), h.getMaxMillis()));
+        }
+        return sb.toString();
+    }
+
+    private static Histogram create(String name) {
+        Histogram h = new Histogram(name);
+        if (jmx != null) register(h);
+        return h;
+    }
+
+    private static void register(Histogram h) {
+        try {
+            jmx.registerMBean(h, new ObjectName("Buchhaltung:type=Latency,name=" + ObjectName.quote(h.name)));
+        } catch (InstanceAlreadyExistsException ignored) {
+            // zweite Anwendung im selben Prozess (z. B. Benchmarks): erste Anmeldung bleibt
+        } catch (JMException e) {
+            LOG.warning("JMX registration failed for " + h.name + ": " + e.getMessage());
+        }
+    }
+
+    /** JMX-Sicht auf ein Histogramm; Zeiten in Millisekunden. */
+    public interface HistogramMXBean {
+        long getCount();
+        double getMeanMillis();
+        double getP50Millis();
+        double getP90Millis();
+        double getP99Millis();
+        double getMaxMillis();
+        void reset();
+    }
+
+    /**
+     * {@summary Sperrfreies Latenz-Histogramm in Nanosekunden.}
+     */
+    public static final class Histogram implements HistogramMXBean {
+        private static final int SUB_BITS = 3;
+        private static final int SUB = 1 << SUB_BITS;
+
+        private final String name;
+        private final AtomicLongArray buckets = new AtomicLongArray(64 * SUB);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder sum = new LongAdder();
+        private final LongAccumulator max = new LongAccumulator(Long::max, 0);
+
+        private Histogram(String name) {
+            this.name = name;
+        }
+
+        /** @param nanos Dauer in Nanosekunden */
+        public void record(long nanos) {
+            if (nanos < 0) nanos = 0;
+            buckets.incrementAndGet(index(nanos));
+            count.increment();
+            sum.add(nanos);
+            max.accumulate(nanos);
+        }
+
+        @Override public long getCount() { return count.sum(); }
+        @Override public double getP50Millis() { return percentile(0.50); }
+        @Override public double getP90Millis() { return percentile(0.90); }
+        @Override public double getP99Millis() { return percentile(0.99); }
+        @Override public double getMaxMillis() { return max.get() / 1e6; }
+
+        @Override
+        public double getMeanMillis() {
+            long n = count.sum();
+            return n == 0 ? 0 : sum.sum() / 1e6 / n;
+        }
+
+        // Zähler laufender Messungen können dabei verloren gehen; für eine Statistik unerheblich
+        @Override
+        public void reset() {
+            for (int i = 0; i < buckets.length(); i++) buckets.set(i, 0);
+            count.reset();
+            sum.reset();
+            max.reset();
+        }
+
+        /** Wert, unter dem der Anteil {@code q} aller Messungen liegt, als Klassenmitte in ms. */
+        double percentile(double q) {
+            long[] snap = new long[buckets.length()];
+            long n = 0;
+            for (int i = 0; i < snap.length; i++) n += snap[i] = buckets.get(i);
+            if (n == 0) return 0;
+            long rank = (long) Math.ceil(q * n);
+            long seen = 0;
+            for (int i = 0; i < snap.length; i++) {
+                seen += snap[i];
+                if (seen >= rank) {
+                    long lo = lowerBound(i), hi = lowerBound(i + 1);
+                    return Math.min((lo + hi) / 2.0, max.get()) / 1e6;
+                }
+            }
+            return max.get() / 1e6;
+        }
+
+        static int index(long v) {
+            if (v < SUB) return (int) v;
+            int exp = 63 - Long.numberOfLeadingZeros(v);
+            int sub = (int) (v >>> (exp - SUB_BITS)) & (SUB - 1);
+            return (exp - SUB_BITS + 1) * SUB + sub;
+        }
+
+        static long lowerBound(int index) {
+            if (index < SUB) return index;
+            int exp = index / SUB + SUB_BITS - 1;
+            return (long) (SUB + index % SUB) << (exp - SUB_BITS);
+        }
+    }
+}
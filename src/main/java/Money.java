@@ -0,0 +1,103 @@
+/**
+ * {@summary Euro-Beträge als {@code long} Cent: exakt formatieren und parsen, ohne Gleitkomma.}
+ * Beträge werden überall als primitiver {@code long} geführt (Spalte {@code betrag_cents},
+ * {@link Buchung}, {@link LedgerPage}, {@link SaldoIndex}); ein Objekt je Betrag gäbe es nur
+ * um den Preis einer Allokation pro Zeile. Diese Klasse bündelt die Umwandlungen in deutscher
+ * Schreibweise ({@code -1.234,56}). {@link #formatTo} schreibt in einen wiederverwendbaren
+ * Puffer und legt dabei nichts an; {@link #parse} kommt ohne reguläre Ausdrücke,
+ * {@code BigDecimal} und {@code double} aus und meldet Überläufe, statt zu runden.
+ */
+final class Money {
+
+    /** Länge, die jeder formatierte Betrag höchstens braucht ({@code Long.MIN_VALUE} mit Tausenderpunkten). */
+    static final int MAX_CHARS = 27;
+
+    private Money() {}
+
+    /**
+     * {@summary Schreibt den Betrag ab Index 0 in den Puffer.}
+     * @param grouping Tausenderpunkte einfügen
+     * @param buf      mindestens {@link #MAX_CHARS} lang
+     * @return Anzahl geschriebener Zeichen
+     */
+    static int formatTo(long cents, boolean grouping, char[] buf) {
+        // rückwärts von hinten, im negativen Bereich gerechnet, damit auch Long.MIN_VALUE passt
+        long v = cents < 0 ? cents : -cents;
+        int p = MAX_CHARS;
+        for (int i = 0; i < 2; i++) {
+            buf[--p] = (char) ('0' - v % 10);
+            v /= 10;
+        }
+        buf[--p] = ',';
+        int digits = 0;
+        do {
+            if (grouping && digits > 0 && digits % 3 == 0) buf[--p] = '.';
+            buf[--p] = (char) ('0' - v % 10);
+            v /= 10;
+            digits++;
+        } while (v != 0);
+        if (cents < 0) buf[--p] = '-';
+        int n = MAX_CHARS - p;
+        System.arraycopy(buf, p, buf, 0, n);
+        return n;
+    }
+
+    /** Betrag als Text, z. B. {@code -1234,56} oder mit Tausenderpunkten {@code -1.234,56}. */
+    static String format(long cents, boolean grouping) {
+        char[] buf = new char[MAX_CHARS];
+        return new String(buf, 0, formatTo(cents, grouping, buf));
+    }
+
+    /**
+     * {@summary Liest einen Betrag in deutscher Schreibweise exakt in Cent.}
+     * Erlaubt sind ein Vorzeichen, Tausenderpunkte zwischen vollständigen Dreiergruppen und ein
+     * Dezimalkomma; mehr als zwei Nachkommastellen werden kaufmännisch gerundet
+     * ({@code 0,005} → 1 Cent), wie bei {@link Buchung#entwurf}.
+     * @throws NumberFormatException bei ungültiger Schreibweise
+     * @throws ArithmeticException   wenn der Betrag nicht in einen {@code long} passt
+     */
+    static long parse(CharSequence s) {
+        int i = 0, n = s.length();
+        while (i < n && s.charAt(i) == ' ') i++;
+        while (n > i && s.charAt(n - 1) == ' ') n--;
+        boolean neg = false;
+        if (i < n && (s.charAt(i) == '-' || s.charAt(i) == '+')) neg = s.charAt(i++) == '-';
+        long euros = 0;
+        int digits = 0, group = -1;   // group: Ziffern seit dem letzten Tausenderpunkt, -1 = keiner
+        for (; i < n && s.charAt(i) != ','; i++) {
+            char c = s.charAt(i);
+            if (c == '.') {
+                if (digits == 0 || (group >= 0 ? group != 3 : digits > 3)) throw invalid(s);
+                group = 0;
+            } else if (c >= '0' && c <= '9') {
+                euros = Math.addExact(Math.multiplyExact(euros, 10), c - '0');
+                digits++;
+                if (group >= 0) group++;
+            } else {
+                throw invalid(s);
+            }
+        }
+        if (group >= 0 && group != 3) throw invalid(s);
+        long cents = 0;
+        int decimals = 0;
+        boolean roundUp = false;
+        if (i < n) {   // Komma
+            if (++i == n) throw invalid(s);
+            for (; i < n; i++) {
+                char c = s.charAt(i);
+                if (c < '0' || c > '9') throw invalid(s);
+                if (decimals < 2) cents = cents * 10 + (c - '0');
+                else if (decimals == 2) roundUp = c >= '5';
+                decimals++;
+            }
+        }
+        if (digits == 0 && decimals == 0) throw invalid(s);
+        if (decimals == 1) cents *= 10;
+        long total = Math.addExact(Math.multiplyExact(euros, 100), cents + (roundUp ? 1 : 0));
+        return neg ? -total : total;
+    }
+
+    private static NumberFormatException invalid(CharSequence s) {
+        return new NumberFormatException("ungültiger Betrag '" + s + "'");
+    }
+}
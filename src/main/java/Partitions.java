@@ -0,0 +1,269 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.logging.Logger;
+
+/**
+ * {@summary Abgeschlossene Geschäftsjahre als eigene, schreibgeschützte Datenbankdateien.}
+ * Offene Jahre liegen in der Tabelle {@code entry} der Hauptdatei. {@link #archive} verschiebt
+ * ein abgeschlossenes Jahr in eine Datei daneben ({@code app-2023.db}), komprimiert sie mit
+ * {@code VACUUM} und trägt sie im Katalog {@code archive} ein; danach nimmt das Jahr keine
+ * Buchungen mehr an. Abfragen lesen über {@link #route} nur die Dateien, deren Jahr den
+ * Zeitraum schneidet; die Leser hängen sie bei Bedarf schreibgeschützt und memory-mapped an.
+ * <p>
+ * Die Tagessummen ({@code entry_rollup}) bleiben für alle Jahre in der Hauptdatei, der Saldo
+ * braucht die Archive also nicht. Den Volltextindex ({@code entry_fts}) hat jede Datei für ihre
+ * eigenen Zeilen (siehe {@link Schema#searchIndex}); {@link Route#union} fragt je Partition deren
+ * Index ab, die Relevanz der Suche gilt daher je Jahr. IDs bleiben beim Verschieben erhalten.
+ */
+final class Partitions {
+
+    private static final Logger LOG = Logger.getLogger("Buchhaltung.db");
+    // a query without date bounds attaches every archive; archiving itself attaches two files
+    static final int MAX_ARCHIVES = DbPool.MAX_ATTACHED - 2;
+
+    /** Ein archiviertes Jahr. */
+    record Archive(int year, String schema, Path file) {
+        String uri() {
+            return file.toUri() + "?mode=ro";
+        }
+    }
+
+    /**
+     * {@summary Zusammenhängender Abschnitt der Ledger-Reihenfolge in einer Partition.}
+     * Die Hauptdatei zerfällt in die Lücken vor, zwischen und nach den Archiven.
+     * @param table   Tabelle inklusive Schema
+     * @param fromDay erster Epoch-Tag (inklusive)
+     * @param toDay   letzter Epoch-Tag (inklusive)
+     */
+    record Segment(String table, long fromDay, long toDay) {
+
+        /** Bezieht den Suchindex in {@code sql} auf die Datei dieses Abschnitts. */
+        String qualify(String sql) {
+            return Partitions.qualify(sql, table.substring(0, table.indexOf('.')));
+        }
+    }
+
+    /** Partitionen, die eine Abfrage lesen muss: Archive aufsteigend, danach die Hauptdatei. */
+    record Route(List<Archive> archives, boolean main) {
+
+        int branches() {
+            return archives.size() + (main ? 1 : 0);
+        }
+
+        /**
+         * {@summary Verknüpft dieselbe Abfrage über alle Partitionen mit {@code UNION ALL}.}
+         * Mit einem nachgestellten {@code ORDER BY} über Indexspalten mischt SQLite die bereits
+         * sortierten Teilergebnisse, statt alles zu sortieren.
+         * Ein {@code FROM entry_fts} liest jeweils den Suchindex der Partition.
+         * @param head  SELECT mit {@code %s} an der Stelle der Tabelle
+         * @param where Bedingung aus {@link EntryQuery#where}, gilt für jede Partition
+         */
+        String union(String head, String where) {
+            StringJoiner sql = new StringJoiner("UNION ALL ");
+            for (Archive a : archives) sql.add(qualify(head.formatted(a.schema() + ".entry") + where, a.schema()));
+            if (main) sql.add(qualify(head.formatted("main.entry") + where, "main"));
+            return sql.toString();
+        }
+
+        /**
+         * {@summary Die Partitionen als Abschnitte in Ledger-Reihenfolge, Lücken außerhalb des Zeitraums entfallen.}
+         * Jahre sind disjunkt, ein Abschnitt folgt also vollständig auf den vorigen.
+         */
+        List<Segment> segments(EntryQuery q) {
+            int from = q.von() != null ? q.von().getYear() : Integer.MIN_VALUE;
+            int to = q.bis() != null ? q.bis().getYear() : Integer.MAX_VALUE;
+            List<Segment> out = new ArrayList<>();
+            long gap = from;
+            for (Archive a : archives) {
+                if (main && gap < a.year()) out.add(mainSegment(gap, a.year() - 1));
+                out.add(new Segment(a.schema() + ".entry", Long.MIN_VALUE, Long.MAX_VALUE));
+                gap = a.year() + 1L;
+            }
+            if (main && gap <= to) out.add(mainSegment(gap, to));
+            return out;
+        }
+
+        private static Segment mainSegment(long fromYear, long toYear) {
+            return new Segment("main.entry",
+                    fromYear == Integer.MIN_VALUE ? Long.MIN_VALUE : LocalDate.of((int) fromYear, 1, 1).toEpochDay(),
+                    toYear == Integer.MAX_VALUE ? Long.MAX_VALUE : LocalDate.of((int) toYear, 12, 31).toEpochDay());
+        }
+
+        /** Hängt die Archive dieser Abfrage an die Verbindung an. */
+        void attach(DbPool.Lease c) throws SQLException {
+            if (archives.isEmpty()) return;
+            Map<String, String> files = new LinkedHashMap<>();
+            for (Archive a : archives) files.put(a.schema(), a.uri());
+            c.attach(files);
+        }
+    }
+
+    // each file indexes only its own rows; an unqualified entry_fts would always be main's
+    private static String qualify(String sql, String schema) {
+        return sql.replace("FROM entry_fts", "FROM " + schema + ".entry_fts");
+    }
+
+    // only the main file: no archives, or none in the range
+    static final Route MAIN = new Route(List.of(), true);
+
+    private final Path dir;
+    private final String baseName;
+    private volatile List<Archive> archives = List.of();
+
+    /** @param file Hauptdatei; Archive liegen im selben Verzeichnis */
+    Partitions(Path file) {
+        Path abs = file.toAbsolutePath();
+        this.dir = abs.getParent();
+        String name = abs.getFileName().toString();
+        this.baseName = name.endsWith(".db") ? name.substring(0, name.length() - 3) : name;
+    }
+
+    /** Liest den Katalog der archivierten Jahre. */
+    void load(Connection c) throws SQLException {
+        List<Archive> list = new ArrayList<>();
+        try (Statement st = c.createStatement();
+             ResultSet rs = st.executeQuery("SELECT jahr, datei FROM archive ORDER BY jahr")) {
+            while (rs.next()) list.add(archive(rs.getInt(1), rs.getString(2)));
+        }
+        archives = List.copyOf(list);
+    }
+
+    boolean isClosed(int year) {
+        for (Archive a : archives) if (a.year() == year) return true;
+        return false;
+    }
+
+    /**
+     * {@summary Wählt die Partitionen, die den Zeitraum der Abfrage schneiden.}
+     * Die Hauptdatei entfällt nur, wenn jedes Jahr des Zeitraums archiviert ist.
+     */
+    Route route(EntryQuery q) {
+        List<Archive> all = archives;
+        if (all.isEmpty()) return MAIN;
+        long from = q.von() != null ? q.von().getYear() : Integer.MIN_VALUE;
+        long to = q.bis() != null ? q.bis().getYear() : Integer.MAX_VALUE;
+        List<Archive> hit = new ArrayList<>();
+        for (Archive a : all) if (a.year() >= from && a.year() <= to) hit.add(a);
+        return hit.isEmpty() ? MAIN : new Route(hit, hit.size() < to - from + 1);
+    }
+
+    /**
+     * {@summary Verschiebt alle Buchungen eines Jahres in dessen Archivdatei.}
+     * Läuft auf der Schreib-Verbindung (unter dem Schreib-Lock), damit währenddessen keine
+     * Buchung des Jahres dazukommt. Bricht der Vorgang ab, bleibt die Hauptdatei unverändert;
+     * eine halb geschriebene Archivdatei wird beim nächsten Versuch ersetzt.
+     * @throws SQLException auch wenn das Jahr schon archiviert ist
+     */
+    void archive(Connection c, int year) throws SQLException {
+        if (isClosed(year)) throw new SQLException("Fiscal year " + year + " is already closed");
+        if (archives.size() >= MAX_ARCHIVES) {
+            throw new SQLException("Cannot close " + year + ": at most " + MAX_ARCHIVES + " fiscal years can be archived");
+        }
+        Archive a = archive(year, baseName + "-" + year + ".db");
+        long from = LocalDate.of(year, 1, 1).toEpochDay();
+        long to = LocalDate.of(year, 12, 31).toEpochDay();
+        try {
+            Files.deleteIfExists(a.file());
+        } catch (IOException e) {
+            throw new SQLException("Cannot replace " + a.file() + ": " + e.getMessage(), e);
+        }
+
+        // 1: copy the year into a fresh file, then compact it on its own connection
+        int copied;
+        attach(c, a.file().toString(), "archive_new");
+        try (Statement st = c.createStatement()) {
+            st.execute("""
+                CREATE TABLE archive_new.entry(
+                  id INTEGER PRIMARY KEY,
+                  belegnr TEXT NOT NULL,
+                  datum INTEGER NOT NULL,
+                  kategorie TEXT NOT NULL,
+                  beschreibung TEXT,
+                  betrag_cents INTEGER NOT NULL
+                )
+            """);
+            try (PreparedStatement ps = c.prepareStatement("INSERT INTO archive_new.entry "
+                    + "SELECT id, belegnr, datum, kategorie, beschreibung, betrag_cents FROM main.entry "
+                    + "WHERE datum BETWEEN ? AND ? ORDER BY datum, id")) {
+                ps.setLong(1, from);
+                ps.setLong(2, to);
+                copied = ps.executeUpdate();
+            }
+            st.execute("CREATE INDEX archive_new.idx_entry_date ON entry(datum)");
+            st.execute("CREATE INDEX archive_new.idx_entry_kat_date ON entry(kategorie, datum, id)");
+        } finally {
+            detach(c, "archive_new");
+        }
+        try (Connection f = DriverManager.getConnection("jdbc:sqlite:" + a.file());
+             Statement st = f.createStatement()) {
+            Schema.searchIndex(st);
+            st.execute("ANALYZE");
+            st.execute("VACUUM");
+        }
+
+        // 2: swap in one transaction; the rollup keeps the rows of the year
+        attach(c, a.uri(), a.schema());
+        c.setAutoCommit(false);
+        try (Statement st = c.createStatement()) {
+            try (PreparedStatement ps = c.prepareStatement("DELETE FROM main.entry WHERE datum BETWEEN ? AND ?")) {
+                ps.setLong(1, from);
+                ps.setLong(2, to);
+                int deleted = ps.executeUpdate();
+                if (deleted != copied) {
+                    throw new SQLException("Archived " + copied + " entries of " + year + " but removed " + deleted);
+                }
+            }
+            // the delete triggers took the rows out of the rollup and of main's search index
+            try (PreparedStatement ps = c.prepareStatement("DELETE FROM entry_rollup WHERE tag BETWEEN ? AND ?")) {
+                ps.setLong(1, from);
+                ps.setLong(2, to);
+                ps.executeUpdate();
+            }
+            st.execute("INSERT INTO entry_rollup(kategorie, tag, summe_cents, anzahl) SELECT kategorie, datum, "
+                    + "SUM(betrag_cents), COUNT(*) FROM " + a.schema() + ".entry GROUP BY 1, 2");
+            try (PreparedStatement ps = c.prepareStatement("INSERT INTO archive(jahr, datei) VALUES(?, ?)")) {
+                ps.setInt(1, year);
+                ps.setString(2, a.file().getFileName().toString());
+                ps.executeUpdate();
+            }
+            c.commit();
+        } catch (SQLException | RuntimeException e) {
+            c.rollback();
+            throw e;
+        } finally {
+            c.setAutoCommit(true);
+            detach(c, a.schema());
+        }
+
+        List<Archive> list = new ArrayList<>(archives);
+        list.add(a);
+        list.sort((x, y) -> Integer.compare(x.year(), y.year()));
+        archives = List.copyOf(list);
+        LOG.info("Closed fiscal year " + year + ": " + copied + " entries moved to " + a.file());
+    }
+
+    private Archive archive(int year, String fileName) {
+        return new Archive(year, "archive_" + year, dir.resolve(fileName));
+    }
+
+    private static void attach(Connection c, String file, String schema) throws SQLException {
+        try (PreparedStatement ps = c.prepareStatement("ATTACH ? AS " + schema)) {
+            ps.setString(1, file);
+            ps.execute();
+        }
+    }
+
+    private static void detach(Connection c, String schema) throws SQLException {
+        try (Statement st = c.createStatement()) {
+            st.execute("DETACH " + schema);
+        }
+    }
+}
@@ -0,0 +1,264 @@
+import java.io.IOException;
+import java.io.Writer;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * {@summary Summen je Kategorie und Periode (Monat, Quartal, Jahr) über beliebig lange Zeiträume.}
+ * {@link #compute} teilt den Zeitraum rekursiv in Abschnitte, bis jeder Leser des
+ * {@link DbPool} einen bekommt; die Abschnitte werden auf einem eigenen Fork-Join-Pool
+ * gleichzeitig gelesen, jeder auf seiner Leser-Verbindung, und die Teilergebnisse beim
+ * Zusammenführen addiert. Was ein Abschnitt liest, bestimmt der {@link ChunkReader}: ohne
+ * Suchbegriffe die Tagessummen aus {@code entry_rollup}, sonst die passenden Buchungen.
+ */
+final class Pivot {
+
+    // shorter chunks cost more per query than they save
+    private static final int MIN_CHUNK_DAYS = 366;
+
+    private static final ForkJoinPool WORKERS = new ForkJoinPool(DbPool.READERS, pool -> {
+        ForkJoinWorkerThread t = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+        t.setName("db-report-" + t.getPoolIndex());
+        return t;
+    }, null, false);
+
+    /** Spalten des Berichts. */
+    enum Periode {
+        MONAT("Monat"), QUARTAL("Quartal"), JAHR("Jahr");
+
+        private final String name;
+
+        Periode(String name) {
+            this.name = name;
+        }
+
+        /** Fortlaufende Nummer der Periode, in der der Tag liegt. */
+        int key(long epochDay) {
+            LocalDate d = LocalDate.ofEpochDay(epochDay);
+            return switch (this) {
+                case MONAT -> d.getYear() * 12 + d.getMonthValue() - 1;
+                case QUARTAL -> d.getYear() * 4 + (d.getMonthValue() - 1) / 3;
+                case JAHR -> d.getYear();
+            };
+        }
+
+        /** Bezeichnung wie {@code 2024-03}, {@code 2024-Q1} oder {@code 2024}. */
+        String label(int key) {
+            return switch (this) {
+                case MONAT -> {
+                    int m = Math.floorMod(key, 12) + 1;
+                    yield Math.floorDiv(key, 12) + (m < 10 ? "-0" : "-") + m;
+                }
+                case QUARTAL -> Math.floorDiv(key, 4) + "-Q" + (Math.floorMod(key, 4) + 1);
+                case JAHR -> Integer.toString(key);
+            };
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    /** Liest einen Abschnitt des Zeitraums und trägt seine Tagessummen ein. */
+    @FunctionalInterface
+    interface ChunkReader {
+        void read(long fromDay, long toDay, Partial into) throws SQLException;
+    }
+
+    /**
+     * {@summary Teilergebnis eines Abschnitts: Summen je Kategorie und Periode.}
+     * Alle Teilergebnisse einer Berechnung haben dieselben Perioden und lassen sich daher
+     * feldweise addieren. Kategorien werden über {@link LedgerPage#code} nummeriert.
+     */
+    static final class Partial {
+        private final Periode periode;
+        private final int firstKey;
+        private final int periods;
+        private final long[][] cents = new long[Byte.MAX_VALUE + 1][];
+        private final long[][] anzahl = new long[Byte.MAX_VALUE + 1][];
+
+        private Partial(Periode periode, int firstKey, int periods) {
+            this.periode = periode;
+            this.firstKey = firstKey;
+            this.periods = periods;
+        }
+
+        /** Trägt die Summe eines Tages (oder einzelner Buchungen dieses Tages) ein. */
+        void add(String kategorie, long epochDay, long summeCents, long n) {
+            int k = LedgerPage.code(kategorie);
+            int p = periode.key(epochDay) - firstKey;
+            if (cents[k] == null) {
+                cents[k] = new long[periods];
+                anzahl[k] = new long[periods];
+            }
+            cents[k][p] += summeCents;
+            anzahl[k][p] += n;
+        }
+
+        private Partial merge(Partial o) {
+            for (int k = 0; k < cents.length; k++) {
+                if (o.cents[k] == null) continue;
+                if (cents[k] == null) {
+                    cents[k] = o.cents[k];
+                    anzahl[k] = o.anzahl[k];
+                    continue;
+                }
+                for (int p = 0; p < periods; p++) {
+                    cents[k][p] += o.cents[k][p];
+                    anzahl[k][p] += o.anzahl[k][p];
+                }
+            }
+            return this;
+        }
+
+        private Table toTable() {
+            List<String> kats = new ArrayList<>();
+            List<long[]> c = new ArrayList<>(), n = new ArrayList<>();
+            for (int k = 0; k < cents.length; k++) {
+                if (cents[k] == null) continue;
+                kats.add(LedgerPage.kategorie((byte) k));
+                c.add(cents[k]);
+                n.add(anzahl[k]);
+            }
+            return new Table(periode, firstKey, periods, List.copyOf(kats),
+                    c.toArray(new long[0][]), n.toArray(new long[0][]));
+        }
+    }
+
+    /**
+     * {@summary Fertiger Bericht: eine Zeile je Periode, eine Spalte je Kategorie.}
+     * @param cents  {@code cents[kategorie][periode]}
+     * @param anzahl Buchungen, gleich indiziert
+     */
+    record Table(Periode periode, int firstKey, int periods, List<String> kategorien,
+                 long[][] cents, long[][] anzahl) {
+
+        static Table empty(Periode periode) {
+            return new Table(periode, 0, 0, List.of(), new long[0][], new long[0][]);
+        }
+
+        String label(int p) {
+            return periode.label(firstKey + p);
+        }
+
+        /** Summe aller Kategorien einer Periode. */
+        long saldo(int p) {
+            long s = 0;
+            for (long[] k : cents) s += k[p];
+            return s;
+        }
+
+        long buchungen(int p) {
+            long n = 0;
+            for (long[] k : anzahl) n += k[p];
+            return n;
+        }
+
+        /** Summe einer Kategorie über alle Perioden. */
+        long total(int k) {
+            long s = 0;
+            for (long v : cents[k]) s += v;
+            return s;
+        }
+
+        long saldo() {
+            long s = 0;
+            for (int k = 0; k < cents.length; k++) s += total(k);
+            return s;
+        }
+
+        long buchungen() {
+            long n = 0;
+            for (int p = 0; p < periods; p++) n += buchungen(p);
+            return n;
+        }
+
+        /**
+         * {@summary Schreibt den Bericht als CSV (Semikolon, Beträge wie im Import), mit Summenzeile.}
+         */
+        void writeCsv(Writer w) throws IOException {
+            char[] buf = new char[Money.MAX_CHARS];
+            w.write(periode.toString());
+            for (String k : kategorien) w.write(";" + k);
+            w.write(";Saldo;Buchungen\n");
+            for (int p = 0; p < periods; p++) {
+                w.write(label(p));
+                for (long[] k : cents) {
+                    w.write(';');
+                    w.write(buf, 0, Money.formatTo(k[p], false, buf));
+                }
+                w.write(';');
+                w.write(buf, 0, Money.formatTo(saldo(p), false, buf));
+                w.write(";" + buchungen(p) + "\n");
+            }
+            w.write("Summe");
+            for (int k = 0; k < cents.length; k++) {
+                w.write(';');
+                w.write(buf, 0, Money.formatTo(total(k), false, buf));
+            }
+            w.write(';');
+            w.write(buf, 0, Money.formatTo(saldo(), false, buf));
+            w.write(";" + buchungen() + "\n");
+        }
+    }
+
+    private Pivot() {}
+
+    /**
+     * {@summary Berechnet den Bericht für die Tage {@code fromDay} bis {@code toDay} (inklusive).}
+     * Jede Periode des Zeitraums bekommt eine Zeile, auch wenn sie leer ist.
+     * @throws RuntimeException wenn ein Abschnitt nicht gelesen werden kann
+     */
+    static Table compute(Periode periode, long fromDay, long toDay, ChunkReader reader) {
+        if (fromDay > toDay) return Table.empty(periode);
+        int firstKey = periode.key(fromDay);
+        int periods = periode.key(toDay) - firstKey + 1;
+        long days = toDay - fromDay + 1;
+        long leafDays = Math.max(MIN_CHUNK_DAYS, (days + WORKERS.getParallelism() - 1) / WORKERS.getParallelism());
+        return WORKERS.invoke(new Chunk(periode, firstKey, periods, fromDay, toDay, leafDays, reader)).toTable();
+    }
+
+    // halves the range down to leafDays, reads the leaves in parallel and adds them up
+    private static final class Chunk extends RecursiveTask<Partial> {
+        private static final long serialVersionUID = 1L;
+
+        private final Periode periode;
+        private final int firstKey, periods;
+        private final long fromDay, toDay, leafDays;
+        private final ChunkReader reader;
+
+        Chunk(Periode periode, int firstKey, int periods, long fromDay, long toDay, long leafDays, ChunkReader reader) {
+            this.periode = periode;
+            this.firstKey = firstKey;
+            this.periods = periods;
+            this.fromDay = fromDay;
+            this.toDay = toDay;
+            this.leafDays = leafDays;
+            this.reader = reader;
+        }
+
+        @Override
+        protected Partial compute() {
+            if (toDay - fromDay + 1 <= leafDays) {
+                Partial p = new Partial(periode, firstKey, periods);
+                try {
+                    reader.read(fromDay, toDay, p);
+                } catch (SQLException e) {
+                    throw new RuntimeException("Query failed: " + e.getMessage(), e);
+                }
+                return p;
+            }
+            long mid = fromDay + (toDay - fromDay) / 2;
+            Chunk left = new Chunk(periode, firstKey, periods, fromDay, mid, leafDays, reader);
+            left.fork();
+            Partial right = new Chunk(periode, firstKey, periods, mid + 1, toDay, leafDays, reader).compute();
+            return right.merge(left.join());
+        }
+    }
+}
@@ -0,0 +1,103 @@
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * {@summary Saldo-Index: Präfixsummen der Beträge je Kategorie über Epoch-Tage.}
+ * Pro Kategorie-Code ({@link LedgerPage#code}) ein Fenwick-Baum über Tagessummen in Cent ({@code long}, exakt).
+ * Summen über beliebige Zeiträume kosten O(log n), neue Buchungen werden in O(log n)
+ * eingetragen. Befüllt wird der Index aus der Tabelle {@code entry_rollup}.
+ */
+final class SaldoIndex {
+
+    private static final int MIN_CAPACITY = 1024;
+
+    private Tree[] trees = new Tree[2];
+
+    /**
+     * {@summary Addiert einen Betrag auf den Tag einer Kategorie.}
+     * @param kategorie Kategorie-Code der Buchung
+     * @param epochDay  Buchungstag als {@link LocalDate#toEpochDay()}
+     * @param cents     Betrag in Cent (vorzeichenbehaftet)
+     */
+    synchronized void add(byte kategorie, long epochDay, long cents) {
+        if (kategorie >= trees.length) trees = Arrays.copyOf(trees, kategorie + 1);
+        if (trees[kategorie] == null) trees[kategorie] = new Tree();
+        trees[kategorie].add(epochDay, cents);
+    }
+
+    /**
+     * {@summary Summe aller Beträge, die vom Filter erfasst werden.}
+     * @param q Zeitraum und Kategorie; offene Grenzen umfassen alles
+     * @return Summe in Cent
+     */
+    synchronized long sum(EntryQuery q) {
+        long from = q.von() != null ? q.von().toEpochDay() : Long.MIN_VALUE;
+        long to = q.bis() != null ? q.bis().toEpochDay() : Long.MAX_VALUE;
+        if (q.kategorie() != null) {
+            byte k = LedgerPage.code(q.kategorie());
+            return (k < trees.length && trees[k] != null) ? trees[k].range(from, to) : 0;
+        }
+        long sum = 0;
+        for (Tree t : trees) if (t != null) sum += t.range(from, to);
+        return sum;
+    }
+
+    synchronized void clear() {
+        Arrays.fill(trees, null);
+    }
+
+    /**
+     * {@summary Fenwick-Baum über ein wachsendes Fenster von Epoch-Tagen.}
+     * Liegt ein Tag außerhalb, wird das Fenster verdoppelt und der Baum neu aufgebaut.
+     */
+    private static final class Tree {
+        private long base;       // Epoch-Tag an Position 0
+        private long[] points;   // Tagessummen
+        private long[] fenwick;  // 1-basiert
+
+        void add(long day, long cents) {
+            if (points == null) {
+                base = day - MIN_CAPACITY / 2;
+                points = new long[MIN_CAPACITY];
+                fenwick = new long[MIN_CAPACITY + 1];
+            }
+            if (day < base || day >= base + points.length) grow(day);
+            int i = (int) (day - base);
+            points[i] += cents;
+            for (int k = i + 1; k < fenwick.length; k += k & -k) fenwick[k] += cents;
+        }
+
+        long range(long from, long to) {
+            if (points == null) return 0;
+            long lo = Math.max(from, base);
+            long hi = Math.min(to, base + points.length - 1);
+            if (lo > hi) return 0;
+            return prefix((int) (hi - base)) - prefix((int) (lo - base) - 1);
+        }
+
+        private long prefix(int i) {
+            long s = 0;
+            for (int k = i + 1; k > 0; k -= k & -k) s += fenwick[k];
+            return s;
+        }
+
+        private void grow(long day) {
+            long lo = Math.min(base, day);
+            long hi = Math.max(base + points.length - 1, day);
+            int size = points.length;
+            while (size < hi - lo + 1) size *= 2;
+            // bei Wachstum nach unten Luft lassen, damit nicht jeder ältere Tag neu aufbaut
+            long newBase = day < base ? hi - size + 1 : lo;
+            long[] p = new long[size];
+            System.arraycopy(points, 0, p, (int) (base - newBase), points.length);
+            base = newBase;
+            points = p;
+            fenwick = new long[size + 1];
+            for (int i = 0; i < size; i++) {
+                fenwick[i + 1] += p[i];
+                int parent = (i + 1) + ((i + 1) & -(i + 1));
+                if (parent <= size) fenwick[parent] += fenwick[i + 1];
+            }
+        }
+    }
+}
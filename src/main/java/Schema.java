@@ -0,0 +1,265 @@
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * {@summary Versioniertes Datenbankschema von {@link DbLite}.}
+ * Die Version steht in {@code PRAGMA user_version}. {@link #migrate} spielt alle fehlenden
+ * Migrationen der Reihe nach ein; jede läuft in einer Transaktion, die zum Schluss auch die
+ * neue Version setzt. Lange Migrationen dürfen zwischendurch committen und setzen nach einem
+ * Abbruch an derselben Stelle fort. Neue Schemaänderungen kommen als weitere Migration ans
+ * Ende der Liste, bestehende werden nicht mehr geändert.
+ */
+final class Schema {
+
+    private static final Logger LOG = Logger.getLogger("Buchhaltung.db");
+    private static final int CHUNK = 20_000;
+
+    // epoch day of an ISO date column, computed inside SQLite (schema 1 stored datum as TEXT)
+    private static final String EPOCH_DAY = "CAST(julianday(%s) - 2440587.5 AS INTEGER)";
+
+    @FunctionalInterface
+    private interface Migration {
+        void apply(Connection c) throws SQLException;
+    }
+
+    private static final List<Migration> MIGRATIONS = List.of(
+            Schema::baseline,
+            Schema::epochDays,
+            Schema::archiveCatalog,
+            Schema::archiveSearch
+    );
+
+    /** Schemaversion, die diese Anwendung erwartet. */
+    static final int VERSION = MIGRATIONS.size();
+
+    private Schema() {}
+
+    /**
+     * {@summary Bringt die Datenbank auf {@link #VERSION}.}
+     * @throws SQLException auch wenn die Datenbank von einer neueren Version stammt
+     */
+    static void migrate(Connection c) throws SQLException {
+        int v = userVersion(c);
+        if (v > VERSION) {
+            throw new SQLException("Database schema " + v + " is newer than this application (" + VERSION + ")");
+        }
+        for (; v < VERSION; v++) {
+            LOG.info("Migrating database schema to version " + (v + 1));
+            c.setAutoCommit(false);
+            try (Statement st = c.createStatement()) {
+                MIGRATIONS.get(v).apply(c);
+                st.execute("PRAGMA user_version = " + (v + 1));
+                c.commit();
+            } catch (SQLException | RuntimeException e) {
+                c.rollback();
+                throw e;
+            } finally {
+                c.setAutoCommit(true);
+            }
+        }
+    }
+
+    private static int userVersion(Connection c) throws SQLException {
+        try (Statement st = c.createStatement(); ResultSet rs = st.executeQuery("PRAGMA user_version")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    // 1: tables as created before versioning existed (datum as ISO text); also adopts such databases
+    private static void baseline(Connection c) throws SQLException {
+        try (Statement st = c.createStatement()) {
+            st.execute("""
+                CREATE TABLE IF NOT EXISTS entry(
+                  id INTEGER PRIMARY KEY AUTOINCREMENT,
+                  belegnr TEXT NOT NULL,
+                  datum TEXT NOT NULL,
+                  kategorie TEXT NOT NULL,
+                  beschreibung TEXT,
+                  betrag_cents INTEGER NOT NULL
+                )
+            """);
+            st.execute("CREATE INDEX IF NOT EXISTS idx_entry_date ON entry(datum)");
+            st.execute("CREATE INDEX IF NOT EXISTS idx_entry_kat_date ON entry(kategorie, datum, id)");
+            st.execute("""
+                CREATE TABLE IF NOT EXISTS entry_rollup(
+                  kategorie TEXT NOT NULL,
+                  tag INTEGER NOT NULL,
+                  summe_cents INTEGER NOT NULL,
+                  anzahl INTEGER NOT NULL,
+                  PRIMARY KEY(kategorie, tag)
+                ) WITHOUT ROWID
+            """);
+            rollupTriggers(st, EPOCH_DAY.formatted("NEW.datum"), EPOCH_DAY.formatted("OLD.datum"));
+            // backfill databases that had entries before the rollup existed
+            try (ResultSet rs = st.executeQuery(
+                    "SELECT EXISTS(SELECT 1 FROM entry) AND NOT EXISTS(SELECT 1 FROM entry_rollup)")) {
+                if (rs.next() && rs.getBoolean(1)) {
+                    st.execute("INSERT INTO entry_rollup(kategorie, tag, summe_cents, anzahl) SELECT kategorie, "
+                            + EPOCH_DAY.formatted("datum") + ", SUM(betrag_cents), COUNT(*) FROM entry GROUP BY 1, 2");
+                }
+            }
+
+            searchIndex(st);
+            searchTriggers(st);
+
+            st.execute("""
+                CREATE TABLE IF NOT EXISTS import_state(
+                  quelle TEXT PRIMARY KEY,
+                  zeile INTEGER NOT NULL
+                )
+            """);
+        }
+    }
+
+    // 2: datum as INTEGER epoch day, so ordering and range filters are plain index scans.
+    // SQLite cannot change a column type: rows are copied in id order into entry_v2, one
+    // committed chunk at a time (resumable), then the tables are swapped and indexes rebuilt.
+    private static void epochDays(Connection c) throws SQLException {
+        try (Statement st = c.createStatement()) {
+            try (ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM entry WHERE julianday(datum) IS NULL")) {
+                if (rs.next() && rs.getInt(1) > 0) {
+                    throw new SQLException(rs.getInt(1) + " entries have an invalid datum, cannot convert");
+                }
+            }
+            st.execute("""
+                CREATE TABLE IF NOT EXISTS entry_v2(
+                  id INTEGER PRIMARY KEY AUTOINCREMENT,
+                  belegnr TEXT NOT NULL,
+                  datum INTEGER NOT NULL,
+                  kategorie TEXT NOT NULL,
+                  beschreibung TEXT,
+                  betrag_cents INTEGER NOT NULL
+                )
+            """);
+            c.commit();
+
+            String copy = "INSERT INTO entry_v2(id, belegnr, datum, kategorie, beschreibung, betrag_cents) "
+                    + "SELECT id, belegnr, " + EPOCH_DAY.formatted("datum") + ", kategorie, beschreibung, betrag_cents "
+                    + "FROM entry WHERE id > (SELECT COALESCE(MAX(id), 0) FROM entry_v2) ORDER BY id LIMIT ?";
+            try (PreparedStatement ps = c.prepareStatement(copy)) {
+                long copied = 0;
+                int n;
+                do {
+                    ps.setInt(1, CHUNK);
+                    n = ps.executeUpdate();
+                    c.commit();
+                    copied += n;
+                    if (n > 0 && copied % (10L * CHUNK) == 0) LOG.info("Converted " + copied + " entries");
+                } while (n == CHUNK);
+                // rows written by another process since the last chunk
+                ps.setInt(1, -1);
+                ps.executeUpdate();
+            }
+
+            // keep AUTOINCREMENT from reusing ids of deleted rows
+            st.execute("DELETE FROM sqlite_sequence WHERE name = 'entry_v2'");
+            st.execute("INSERT INTO sqlite_sequence(name, seq) SELECT 'entry_v2', seq FROM sqlite_sequence WHERE name = 'entry'");
+            st.execute("DROP TABLE entry");   // drops the old indexes and triggers as well
+            st.execute("ALTER TABLE entry_v2 RENAME TO entry");
+            st.execute("CREATE INDEX idx_entry_date ON entry(datum)");
+            st.execute("CREATE INDEX idx_entry_kat_date ON entry(kategorie, datum, id)");
+            rollupTriggers(st, "NEW.datum", "OLD.datum");
+            searchTriggers(st);
+            // rowids are unchanged, entry_rollup and entry_fts stay valid as they are
+        }
+    }
+
+    // 3: catalog of closed fiscal years moved to their own files (see Partitions)
+    private static void archiveCatalog(Connection c) throws SQLException {
+        try (Statement st = c.createStatement()) {
+            st.execute("""
+                CREATE TABLE IF NOT EXISTS archive(
+                  jahr INTEGER PRIMARY KEY,
+                  datei TEXT NOT NULL
+                )
+            """);
+        }
+    }
+
+    // 4: archives get their own search index; the one in main indexed their rows, which its
+    // content table (main.entry) no longer has
+    private static void archiveSearch(Connection c) throws SQLException {
+        List<String> files = new ArrayList<>();
+        try (Statement st = c.createStatement();
+             ResultSet rs = st.executeQuery("SELECT datei FROM archive")) {
+            while (rs.next()) files.add(rs.getString(1));
+        }
+        if (files.isEmpty()) return;
+        Path dir;
+        try (Statement st = c.createStatement();
+             ResultSet rs = st.executeQuery("SELECT file FROM pragma_database_list WHERE name = 'main'")) {
+            rs.next();
+            dir = Path.of(rs.getString(1)).getParent();
+        }
+        for (String f : files) {
+            Path file = dir.resolve(f);
+            if (!Files.isRegularFile(file)) {
+                LOG.warning("Archive " + file + " is missing, its entries cannot be searched");
+                continue;
+            }
+            // idempotent, so a migration that fails later simply runs again
+            try (Connection a = DriverManager.getConnection("jdbc:sqlite:" + file);
+                 Statement st = a.createStatement()) {
+                searchIndex(st);
+            }
+        }
+        try (Statement st = c.createStatement()) {
+            st.execute("INSERT INTO entry_fts(entry_fts) VALUES('rebuild')");
+        }
+    }
+
+    /**
+     * {@summary Legt den Volltextindex {@code entry_fts} über {@code entry} derselben Datei an und füllt ihn, falls leer.}
+     * Der Index speichert keinen eigenen Text ({@code content=entry}) und darf daher nur Zeilen
+     * enthalten, die in {@code entry} derselben Datei stehen. Hauptdatei und jedes Archiv haben
+     * deshalb ihren eigenen Index (siehe {@link Partitions}).
+     */
+    static void searchIndex(Statement st) throws SQLException {
+        st.execute("""
+            CREATE VIRTUAL TABLE IF NOT EXISTS entry_fts USING fts5(
+              belegnr, beschreibung,
+              content='entry', content_rowid='id',
+              tokenize='unicode61 remove_diacritics 2', prefix='2 3'
+            )
+        """);
+        try (ResultSet rs = st.executeQuery(
+                "SELECT EXISTS(SELECT 1 FROM entry) AND NOT EXISTS(SELECT 1 FROM entry_fts_docsize)")) {
+            if (rs.next() && rs.getBoolean(1)) st.execute("INSERT INTO entry_fts(entry_fts) VALUES('rebuild')");
+        }
+    }
+
+    // daily sums per category, kept in sync with entry
+    private static void rollupTriggers(Statement st, String newDay, String oldDay) throws SQLException {
+        String add = """
+              INSERT INTO entry_rollup(kategorie, tag, summe_cents, anzahl)
+              VALUES (NEW.kategorie, %s, NEW.betrag_cents, 1)
+              ON CONFLICT(kategorie, tag) DO UPDATE
+                SET summe_cents = summe_cents + excluded.summe_cents, anzahl = anzahl + 1;
+            """.formatted(newDay);
+        String remove = """
+              UPDATE entry_rollup SET summe_cents = summe_cents - OLD.betrag_cents, anzahl = anzahl - 1
+              WHERE kategorie = OLD.kategorie AND tag = %s;
+            """.formatted(oldDay);
+        st.execute("CREATE TRIGGER IF NOT EXISTS trg_entry_rollup_ins AFTER INSERT ON entry BEGIN" + add + "END");
+        st.execute("CREATE TRIGGER IF NOT EXISTS trg_entry_rollup_del AFTER DELETE ON entry BEGIN" + remove + "END");
+        st.execute("CREATE TRIGGER IF NOT EXISTS trg_entry_rollup_upd AFTER UPDATE OF datum, kategorie, betrag_cents"
+                + " ON entry BEGIN" + remove + add + "END");
+    }
+
+    // keeps entry_fts in sync with entry. Rows moved to an archive leave the index through the delete
+    // trigger; nothing may add rows that main.entry does not have (see searchIndex)
+    private static void searchTriggers(Statement st) throws SQLException {
+        String add = " INSERT INTO entry_fts(rowid, belegnr, beschreibung)"
+                + " VALUES (NEW.id, NEW.belegnr, NEW.beschreibung); ";
+        String remove = " INSERT INTO entry_fts(entry_fts, rowid, belegnr, beschreibung)"
+                + " VALUES ('delete', OLD.id, OLD.belegnr, OLD.beschreibung); ";
+        st.execute("CREATE TRIGGER IF NOT EXISTS trg_entry_fts_ins AFTER INSERT ON entry BEGIN" + add + "END");
+        st.execute("CREATE TRIGGER IF NOT EXISTS trg_entry_fts_del AFTER DELETE ON entry BEGIN" + remove + "END");
+        st.execute("CREATE TRIGGER IF NOT EXISTS trg_entry_fts_upd AFTER UPDATE OF belegnr, beschreibung"
+                + " ON entry BEGIN" + remove + add + "END");
+    }
+}
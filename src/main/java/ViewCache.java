@@ -0,0 +1,81 @@
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * {@summary Hält die zuletzt verlassenen Ansichten der Hauptseite zur Wiederverwendung bereit.}
+ * Beim Filterwechsel wird das bisherige {@link EntryTableModel} samt Zeilenanzahl, geladenen
+ * Seiten und bekanntem Saldo unter seinem Filter abgelegt; kehrt der Benutzer zu diesem Filter
+ * zurück, ist die Ansicht ohne Abfrage sofort da. Verdrängt wird nach Speicherbedarf, die am
+ * längsten nicht benutzte Ansicht zuerst.
+ * <p>
+ * Neue Buchungen entfernen nur die Ansichten, deren Zeitraum und Kategorie sie erfassen
+ * ({@link #entryAdded}). Nach Schreibvorgängen ohne Einzelmeldung (z. B. ein CSV-Import) meldet
+ * {@link DbLite#fireReload()} ein Neuladen, bei dem die Hauptseite den Cache leert. Alle Zugriffe
+ * erfolgen auf dem EDT, in derselben Reihenfolge wie die Meldungen an das aktive Modell; eine
+ * Buchung trifft daher entweder das aktive Modell oder die abgelegten Ansichten.
+ */
+final class ViewCache {
+
+    private final long maxBytes;
+    private final Map<EntryQuery, EntryTableModel> views = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+
+    /** @param maxBytes geschätzter Speicher, den alle abgelegten Ansichten zusammen belegen dürfen */
+    ViewCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * {@summary Legt ein abgelöstes Modell ab, falls es vollständig ist; sonst wird es abgebrochen.}
+     * Noch laufende Seitenabfragen werden in jedem Fall abgebrochen.
+     */
+    void put(EntryTableModel model) {
+        boolean settled = model.isSettled();
+        model.cancel();
+        if (!settled) return;
+        long size = model.estimatedBytes();
+        if (size > maxBytes) return;
+        EntryTableModel old = views.put(model.getQuery(), model);
+        if (old != null) bytes -= old.estimatedBytes();
+        bytes += size;
+        Iterator<EntryTableModel> it = views.values().iterator();
+        while (bytes > maxBytes && it.hasNext()) {
+            bytes -= it.next().estimatedBytes();
+            it.remove();
+        }
+    }
+
+    /**
+     * {@summary Entnimmt die Ansicht für einen Filter, sofern noch gültig.}
+     * @return wiederaufgenommenes Modell oder {@code null}
+     */
+    EntryTableModel take(EntryQuery q) {
+        EntryTableModel m = views.remove(q);
+        if (m == null) return null;
+        bytes -= m.estimatedBytes();
+        m.resume();
+        return m;
+    }
+
+    /**
+     * {@summary Verwirft die Ansichten, in denen die neue Buchung erscheinen würde.}
+     * Ansichten mit Suchbegriffen fallen schon bei passendem Zeitraum und Kategorie weg.
+     */
+    void entryAdded(Buchung b) {
+        int day = (int) b.datum().toEpochDay();
+        byte kat = LedgerPage.code(b.kategorie());
+        Iterator<EntryTableModel> it = views.values().iterator();
+        while (it.hasNext()) {
+            EntryTableModel m = it.next();
+            if (!m.getQuery().matches(day, kat)) continue;
+            bytes -= m.estimatedBytes();
+            it.remove();
+        }
+    }
+
+    void clear() {
+        views.clear();
+        bytes = 0;
+    }
+}
@@ -0,0 +1,152 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * {@summary Schnappschuss der zuletzt sichtbaren Ansicht für einen Start ohne Wartezeit.}
+ * Beim Schließen legt die Hauptseite Filter, Saldo und die Seiten mit den sichtbaren Zeilen
+ * binär neben der Datenbank ab ({@code app.db.view}, wenige KiB). Beim nächsten Start werden
+ * diese Zeilen angezeigt, noch bevor die Datenbank geöffnet ist; {@link EntryTableModel}
+ * gleicht sie danach im Hintergrund ab. Die Zeit bis zur ersten Anzeige hängt damit nicht von
+ * der Größe des Journals ab. Ein fehlender oder beschädigter Schnappschuss wird übergangen.
+ */
+final class WarmStart {
+
+    private static final Logger LOG = Logger.getLogger("Buchhaltung.ui");
+
+    private static final int MAGIC = 0x42485657;   // "BHVW"
+    private static final int VERSION = 1;
+    private static final long NONE = Long.MIN_VALUE;
+    // at most MAX_PAGES full pages of long texts; a real snapshot has a few KiB
+    private static final long MAX_BYTES = 16L << 20;
+    // id, day, beleg length, category, text length, cents
+    private static final int MIN_ROW_BYTES = 8 + 4 + 4 + 1 + 4 + 8;
+
+    /**
+     * {@summary Gespeicherte Ansicht.}
+     * @param rows   Trefferzahl des Filters beim Speichern
+     * @param maxId  höchste ID beim Speichern; stimmen beide noch, gelten die Seiten unverändert
+     * @param saldo  angezeigter Saldo in Cent oder {@code null}
+     * @param topRow erste sichtbare Zeile
+     * @param pages  Seitennummer im {@link EntryTableModel} → Zeilen der Seite
+     */
+    record View(EntryQuery query, int rows, long maxId, Long saldo, int topRow, Map<Integer, LedgerPage> pages) {}
+
+    private WarmStart() {}
+
+    /** Ablageort des Schnappschusses zur Datenbankdatei. */
+    static Path fileFor(String dbFile) {
+        return Path.of(dbFile + ".view");
+    }
+
+    /**
+     * {@summary Liest einen Schnappschuss.}
+     * @return die Ansicht oder {@code null}, wenn es keinen lesbaren Schnappschuss gibt
+     */
+    static View read(Path file) {
+        if (!Files.isRegularFile(file)) return null;
+        try {
+            // every size below is checked against what is left, a damaged file cannot allocate more than this
+            if (Files.size(file) > MAX_BYTES) throw new IOException("too large");
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(Files.readAllBytes(file)));
+            if (in.readInt() != MAGIC || in.readUnsignedShort() != VERSION) return null;
+            long von = in.readLong(), bis = in.readLong();
+            EntryQuery q = new EntryQuery(von == NONE ? null : LocalDate.ofEpochDay(von),
+                    bis == NONE ? null : LocalDate.ofEpochDay(bis), readString(in), readString(in));
+            int rows = in.readInt();
+            long maxId = in.readLong();
+            long saldo = in.readLong();
+            int topRow = in.readInt();
+            if (rows < 0 || topRow < 0) throw new IOException("negative row number");
+            // Kategorie-Codes gelten nur für einen Lauf, daher mit Namen gespeichert
+            byte[] codes = new byte[in.readUnsignedByte()];
+            for (int k = 0; k < codes.length; k++) codes[k] = LedgerPage.code(readString(in));
+            Map<Integer, LedgerPage> pages = new LinkedHashMap<>();
+            int count = in.readUnsignedByte();
+            if (count > EntryTableModel.MAX_PAGES) throw new IOException(count + " pages");
+            for (int n = count; n > 0; n--) {
+                int index = in.readInt();
+                int size = in.readInt();
+                if (index < 0 || index > rows / EntryTableModel.PAGE_SIZE) throw new IOException("page " + index);
+                if (size < 0 || size > EntryTableModel.PAGE_SIZE || size > in.available() / MIN_ROW_BYTES) {
+                    throw new IOException("page size " + size);
+                }
+                LedgerPage page = new LedgerPage(size);
+                for (int i = 0; i < size; i++) {
+                    page.add(in.readLong(), in.readInt(), readString(in), codes[in.readUnsignedByte()],
+                            readString(in), in.readLong());
+                }
+                pages.put(index, page);
+            }
+            return new View(q, rows, maxId, saldo == NONE ? null : saldo, topRow, pages);
+        } catch (IOException | RuntimeException e) {
+            LOG.fine("Ignoring warm start snapshot " + file + ": " + e);
+            return null;
+        }
+    }
+
+    /**
+     * {@summary Schreibt einen Schnappschuss; eine ältere Datei wird erst ersetzt, wenn der neue vollständig ist.}
+     */
+    static void write(Path file, View v) throws IOException {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            EntryQuery q = v.query();
+            out.writeLong(q.von() == null ? NONE : q.von().toEpochDay());
+            out.writeLong(q.bis() == null ? NONE : q.bis().toEpochDay());
+            writeString(out, q.kategorie());
+            writeString(out, q.suche());
+            out.writeInt(v.rows());
+            out.writeLong(v.maxId());
+            out.writeLong(v.saldo() == null ? NONE : v.saldo());
+            out.writeInt(v.topRow());
+            int kats = 0;
+            for (LedgerPage p : v.pages().values()) {
+                for (int i = 0; i < p.size(); i++) kats = Math.max(kats, p.kategorie(i) + 1);
+            }
+            out.writeByte(kats);
+            for (int k = 0; k < kats; k++) writeString(out, LedgerPage.kategorie((byte) k));
+            out.writeByte(v.pages().size());
+            for (Map.Entry<Integer, LedgerPage> e : v.pages().entrySet()) {
+                LedgerPage p = e.getValue();
+                out.writeInt(e.getKey());
+                out.writeInt(p.size());
+                for (int i = 0; i < p.size(); i++) {
+                    out.writeLong(p.id(i));
+                    out.writeInt(p.day(i));
+                    writeString(out, p.beleg(i));
+                    out.writeByte(p.kategorie(i));
+                    writeString(out, p.beschreibung(i));
+                    out.writeLong(p.cents(i));
+                }
+            }
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // length-prefixed UTF-8, -1 for null (writeUTF is limited to 64 KiB)
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        if (s == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] b = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(b.length);
+        out.write(b);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int n = in.readInt();
+        if (n < 0) return null;
+        if (n > in.available()) throw new IOException("String too long: " + n);
+        return new String(in.readNBytes(n), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,66 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * {@summary Export mit {@link CsvExporter} und erneuter Import mit {@link CsvImporter} ergeben dieselben Buchungen.}
+ */
+class CsvRoundTripTest {
+
+    @TempDir
+    Path dir;
+
+    @AfterEach
+    void close() {
+        DbLite.shutdown();
+    }
+
+    @Test
+    void mehrzeiligeBeschreibungBleibtEineBuchung() throws Exception {
+        DbLite.init(dir.resolve("a.db").toString());
+        LocalDate d = LocalDate.of(2024, 1, 3);
+        DbLite.insert("B1", d, "Ausgaben", "Zeile 1\nZeile 2", -5000);
+        DbLite.insert("B2", d, "Einnahmen", "mit ; und \"Zitat\"\n\nnach Leerzeile", 12345);
+        DbLite.insert("B3", d, "Einnahmen", "einzeilig", 1);
+        List<String> vorher = rows();
+        Path csv = dir.resolve("export.csv");
+        assertFalse(new CsvExporter(EntryQuery.of(null, null, "Alle"), csv, p -> {}).run().abgebrochen());
+        DbLite.shutdown();
+
+        DbLite.init(dir.resolve("b.db").toString());
+        CsvImporter.Result r = new CsvImporter(csv, p -> {}).run();
+        assertEquals(List.of(), r.fehler());
+        assertEquals(vorher, rows());
+        Path again = dir.resolve("again.csv");
+        new CsvExporter(EntryQuery.of(null, null, "Alle"), again, p -> {}).run();
+        assertArrayEquals(Files.readAllBytes(csv), Files.readAllBytes(again));
+    }
+
+    @Test
+    void crlfImFeldWirdAlsZeilenumbruchGelesen() throws Exception {
+        DbLite.init(dir.resolve("a.db").toString());
+        DbLite.insert("B1", LocalDate.of(2024, 1, 3), "Einnahmen", "a\r\nb", 100);
+        Path csv = dir.resolve("export.csv");
+        new CsvExporter(EntryQuery.of(null, null, "Alle"), csv, p -> {}).run();
+        DbLite.shutdown();
+
+        DbLite.init(dir.resolve("b.db").toString());
+        new CsvImporter(csv, p -> {}).run();
+        assertEquals(List.of("B1|Einnahmen|a\nb|100"), rows());
+    }
+
+    private static List<String> rows() throws Exception {
+        List<String> out = new ArrayList<>();
+        DbLite.forEachEntry(EntryQuery.of(null, null, "Alle"),
+                (id, belegnr, day, kat, text, cents) -> out.add(belegnr + "|" + kat + "|" + text + "|" + cents));
+        return out;
+    }
+}